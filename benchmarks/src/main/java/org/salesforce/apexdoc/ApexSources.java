@@ -0,0 +1,162 @@
+package org.salesforce.apexdoc;
+
+/*************************************************************************
+ * @description the Apex classes the benchmarks run on. They are built the
+ *              same way every time, so results can be compared between
+ *              builds, and each stresses a different part of ApexDoc.
+ */
+final class ApexSources {
+
+    /*************************************************************************
+     * @description the kinds of class benchmarked.
+     */
+    enum Shape {
+        // a typical small class: a few members, with short comments
+        SMALL,
+        // every member has a long comment, with @param, @return and @example
+        DOC_HEAVY,
+        // about 5,000 lines, mostly method bodies the parser skips
+        LARGE,
+        // inner classes inside inner classes, and deeply nested blocks
+        DEEP
+    }
+
+    private ApexSources() {
+    }
+
+    static String create(Shape shape, String className) {
+        switch (shape) {
+            case SMALL:
+                return smallClass(className);
+            case DOC_HEAVY:
+                return docHeavyClass(className, 40);
+            case LARGE:
+                return largeClass(className, 5000);
+            default:
+                return deepClass(className, 8);
+        }
+    }
+
+    static String smallClass(String className) {
+        StringBuilder sb = new StringBuilder();
+        classComment(sb, className, 2);
+        sb.append("public with sharing class ").append(className).append(" {\n");
+        for (int i = 0; i < 3; i++) {
+            sb.append("    /** @description the number of records, ").append(i).append(" */\n");
+            sb.append("    public Integer count").append(i).append(" { get; set; }\n");
+        }
+        for (int i = 0; i < 4; i++) {
+            sb.append("    /**\n");
+            sb.append("    * @description updates the accounts\n");
+            sb.append("    * @param accounts the accounts to update\n");
+            sb.append("    * @return the number updated\n");
+            sb.append("    */\n");
+            sb.append("    public Integer update").append(i).append("(List<Account> accounts) {\n");
+            sb.append("        update accounts;\n");
+            sb.append("        return accounts.size();\n");
+            sb.append("    }\n\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    static String docHeavyClass(String className, int cMethods) {
+        StringBuilder sb = new StringBuilder();
+        classComment(sb, className, 30);
+        sb.append("global with sharing class ").append(className).append(" {\n");
+        for (int i = 0; i < cMethods; i++) {
+            sb.append("    /*******************************************************************************\n");
+            sb.append("    * @description ");
+            for (int line = 0; line < 12; line++)
+                sb.append("Works out the <b>household</b> naming & greeting for contact ").append(line)
+                        .append(", following the settings.\n    *              ");
+            sb.append("\n");
+            for (int p = 0; p < 4; p++)
+                sb.append("    * @param param").append(p).append(" the ").append(p)
+                        .append("th set of records, which may be empty but never null\n");
+            sb.append("    * @return Map<Id, String> the names by contact id, for every contact given\n");
+            sb.append("    * @example\n");
+            for (int line = 0; line < 6; line++)
+                sb.append("    * Map<Id, String> names = ").append(className).append(".names").append(i)
+                        .append("(contacts, accounts, null, new Set<Id>());\n");
+            sb.append("    * @deprecated use names").append(i + 1).append(" instead\n");
+            sb.append("    */\n");
+            sb.append("    global static Map<Id, String> names").append(i)
+                    .append("(List<Contact> param0, List<Account> param1, Map<Id, Id> param2, Set<Id> param3) {\n");
+            sb.append("        return new Map<Id, String>();\n");
+            sb.append("    }\n\n");
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    static String largeClass(String className, int cLines) {
+        StringBuilder sb = new StringBuilder();
+        classComment(sb, className, 4);
+        sb.append("public class ").append(className).append(" {\n");
+        int cLinesDone = 8;
+        for (int i = 0; cLinesDone < cLines; i++) {
+            sb.append("    /**\n");
+            sb.append("    * @description step ").append(i).append(" of the batch\n");
+            sb.append("    * @param scope the records in this chunk\n");
+            sb.append("    */\n");
+            sb.append("    public void step").append(i).append("(List<SObject> scope) {\n");
+            for (int line = 0; line < 40; line++) {
+                sb.append("        String s").append(line).append(" = 'value; { with } (punctuation) // not a comment';\n");
+                sb.append("        if (scope.size() > ").append(line).append(") { scope[0].put('Name__c', s")
+                        .append(line).append("); } // ").append(line).append("\n");
+            }
+            sb.append("    }\n\n");
+            cLinesDone += 87;
+        }
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    static String deepClass(String className, int depth) {
+        StringBuilder sb = new StringBuilder();
+        classComment(sb, className, 2);
+        sb.append("public class ").append(className).append(" {\n");
+        nestedClass(sb, className, depth, "    ");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void nestedClass(StringBuilder sb, String className, int depth, String indent) {
+        for (int i = 0; i < 3; i++) {
+            sb.append(indent).append("/** @description level ").append(depth).append(" method ").append(i)
+                    .append(" */\n");
+            sb.append(indent).append("public Boolean check").append(i).append("(Integer n) {\n");
+            String blockIndent = indent + "    ";
+            for (int level = 0; level < depth; level++) {
+                sb.append(blockIndent).append("for (Integer i").append(level).append(" = 0; i").append(level)
+                        .append(" < n; i").append(level).append("++) {\n");
+                blockIndent += "    ";
+            }
+            sb.append(blockIndent).append("if (n == 0) { return false; }\n");
+            for (int level = 0; level < depth; level++) {
+                blockIndent = blockIndent.substring(4);
+                sb.append(blockIndent).append("}\n");
+            }
+            sb.append(indent).append("    return true;\n");
+            sb.append(indent).append("}\n");
+        }
+        if (depth > 0) {
+            sb.append(indent).append("/** @description nested ").append(depth).append(" */\n");
+            sb.append(indent).append("public class ").append(className).append("Inner").append(depth).append(" {\n");
+            nestedClass(sb, className, depth - 1, indent + "    ");
+            sb.append(indent).append("}\n");
+        }
+    }
+
+    private static void classComment(StringBuilder sb, String className, int cLines) {
+        sb.append("/**\n");
+        sb.append("* @author Benchmarks\n");
+        sb.append("* @date 2024\n");
+        sb.append("* @group Benchmarks\n");
+        sb.append("* @description ");
+        for (int i = 0; i < cLines; i++)
+            sb.append(className).append(" is a class for the benchmarks, line ").append(i).append(".\n* ");
+        sb.append("\n*/\n");
+    }
+}
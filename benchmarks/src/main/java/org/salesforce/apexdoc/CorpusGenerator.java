@@ -0,0 +1,377 @@
+package org.salesforce.apexdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Random;
+
+/*************************************************************************
+ * @description writes a folder of made up, but realistic, Apex class files
+ *              for the scale tests. There are classes, interfaces, test
+ *              classes and global classes, in groups with and without
+ *              @group-content, with properties, nested classes and enums,
+ *              methods whose signatures span several lines, method bodies
+ *              with nested blocks, SOQL and strings holding braces, and doc
+ *              comments from one line to dozens. Each class depends only on
+ *              the seed and its number, so a corpus of 1,000 classes is the
+ *              first 1,000 classes of the corpus of 10,000 with the same seed.
+ */
+public class CorpusGenerator {
+
+    // the domains the classes are grouped by, as in a large managed package
+    private static final String[][] DOMAINS = {
+            { "ACCT", "Accounts" }, { "CON", "Contacts" }, { "OPP", "Opportunities" }, { "CAMP", "Campaigns" },
+            { "HH", "Households" }, { "ADDR", "Addresses" }, { "AFFL", "Affiliations" }, { "REL", "Relationships" },
+            { "RD", "Recurring Donations" }, { "PMT", "Payments" }, { "ALLO", "Allocations" }, { "CRLP", "Rollups" },
+            { "BDI", "Data Import" }, { "GE", "Gift Entry" }, { "UTIL", "Utilities" }, { "TDTM", "Triggers" },
+            { "STG", "Settings" }, { "LVL", "Levels" }, { "ERR", "Errors" }, { "BATCH", "Batch Jobs" } };
+
+    private static final String[] NOUNS = { "Household", "Naming", "Address", "Donation", "Rollup", "Schedule",
+            "Payment", "Matching", "Soft Credit", "Engagement", "Member", "Level", "Customizable", "Seasonal",
+            "Verification", "Merge", "Owner", "Primary", "Contact Role", "Batch" };
+
+    private static final String[] SUFFIXES = { "Service", "Controller", "Handler", "Selector", "Util", "Batch",
+            "Schedulable", "TDTM", "Wrapper", "Queueable" };
+
+    private static final String[] TYPES = { "String", "Integer", "Boolean", "Decimal", "Date", "Id", "Account",
+            "Contact", "Opportunity", "List<Account>", "List<Contact>", "Set<Id>", "Map<Id, Contact>",
+            "Map<String, List<Opportunity>>", "SObject", "Schema.DescribeFieldResult" };
+
+    private static final String[] WORDS = { "the", "account", "household", "contact", "is", "updated", "when",
+            "a", "donation", "is", "received", "and", "rollups", "are", "recalculated", "for", "each", "record",
+            "in", "batch", "settings", "naming", "format", "uses", "primary", "address", "if", "enabled", "org",
+            "trigger", "handler", "returns", "null", "otherwise", "<b>always</b>", "&", "ignores", "deleted" };
+
+    private static final String[] SCOPES = { "public", "public", "public", "global", "private", "protected" };
+
+    private static final String META_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<ApexClass xmlns=\"http://soap.sforce.com/2006/04/metadata\">\n"
+            + "    <apiVersion>45.0</apiVersion>\n"
+            + "    <status>Active</status>\n"
+            + "</ApexClass>\n";
+
+    private final long seed;
+
+    public CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /*************************************************************************
+     * @description writes the class files, with their -meta.xml files, and
+     *              the group content files they refer to.
+     * @param folder
+     *            - the folder to write to, created if need be
+     * @param classes
+     *            - number of class files
+     * @throws IOException
+     */
+    public void generate(File folder, int classes) throws IOException {
+        File groupFolder = new File(folder, "groupContent");
+        if (!groupFolder.isDirectory() && !groupFolder.mkdirs())
+            throw new IOException("can't create " + groupFolder);
+        for (String[] domain : DOMAINS) {
+            write(new File(groupFolder, groupFile(domain)), "<h2>" + domain[1] + "</h2>\n<p>The classes that " +
+                    "work with " + domain[1].toLowerCase() + ".</p>\n");
+        }
+        for (int i = 0; i < classes; i++) {
+            Random random = new Random(seed * 1000003 + i);
+            String className = className(random, i);
+            write(new File(folder, className + ".cls"), classSource(random, className));
+            write(new File(folder, className + ".cls-meta.xml"), META_XML);
+        }
+    }
+
+    /*************************************************************************
+     * @description returns the source of the class with the given number.
+     * @param i
+     * @return String
+     */
+    public String classSource(int i) {
+        Random random = new Random(seed * 1000003 + i);
+        return classSource(random, className(random, i));
+    }
+
+    private static String className(Random random, int i) {
+        String[] domain = DOMAINS[random.nextInt(DOMAINS.length)];
+        return domain[0] + "_" + pick(random, NOUNS).replace(" ", "") + pick(random, SUFFIXES) + "_" + i;
+    }
+
+    private static String classSource(Random random, String className) {
+        String prefix = className.substring(0, className.indexOf('_'));
+        String[] domain = DOMAINS[0];
+        for (String[] d : DOMAINS) {
+            if (d[0].equals(prefix))
+                domain = d;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int kind = random.nextInt(20);
+        boolean isInterface = kind < 2;
+        boolean isTest = kind == 2;
+
+        sb.append("/**\n");
+        sb.append("* @author ").append(random.nextBoolean() ? "Salesforce.org" : "Nonprofit Team").append("\n");
+        sb.append("* @date ").append(2010 + random.nextInt(10)).append("\n");
+        sb.append("* @group ").append(domain[1]).append("\n");
+        if (random.nextInt(3) == 0)
+            sb.append("* @group-content groupContent/").append(groupFile(domain)).append("\n");
+        sb.append("* @description ");
+        appendWords(random, sb, 1 + random.nextInt(random.nextInt(8) == 0 ? 40 : 8), "* ");
+        if (random.nextInt(25) == 0)
+            sb.append("* @deprecated use ").append(domain[0]).append("_").append(pick(random, NOUNS).replace(" ", ""))
+                    .append(pick(random, SUFFIXES)).append(" instead\n");
+        sb.append("*/\n");
+
+        if (isInterface) {
+            sb.append("public interface ").append(className).append(" {\n");
+            int cMethods = 1 + random.nextInt(8);
+            for (int i = 0; i < cMethods; i++) {
+                appendMethodComment(random, sb, "    ", 1 + random.nextInt(3), false);
+                sb.append("    ").append(pick(random, TYPES)).append(" ").append(methodName(random, i)).append("(")
+                        .append(pick(random, TYPES)).append(" value);\n\n");
+            }
+            sb.append("}\n");
+            return sb.toString();
+        }
+
+        if (isTest) {
+            sb.append("@isTest\nprivate class ").append(className).append(" {\n");
+        } else {
+            sb.append(random.nextInt(10) == 0 ? "global" : "public").append(" with sharing ");
+            if (random.nextInt(8) == 0)
+                sb.append("virtual ");
+            sb.append("class ").append(className);
+            if (random.nextInt(4) == 0)
+                sb.append(" extends ").append(domain[0]).append("_Base");
+            if (random.nextInt(4) == 0)
+                sb.append(" implements Database.Batchable<SObject>, Database.Stateful");
+            sb.append(" {\n");
+        }
+
+        int cProperties = random.nextInt(11);
+        for (int i = 0; i < cProperties; i++)
+            appendProperty(random, sb, "    ", i);
+        sb.append("\n");
+
+        // test classes rarely have inner types, and ApexDoc loses track of the
+        // end of an inner interface inside a private class
+        int cInner = random.nextInt(6) == 0 && !isTest ? 1 + random.nextInt(3) : 0;
+        for (int i = 0; i < cInner; i++)
+            appendInnerClass(random, sb, className, i);
+
+        if (random.nextInt(5) == 0) {
+            sb.append("    /** @description the states a record moves through */\n");
+            sb.append("    public enum Status { OPEN, PENDING, CLOSED, FAILED }\n\n");
+        }
+
+        int cMethods = 1 + random.nextInt(random.nextInt(10) == 0 ? 60 : 10);
+        for (int i = 0; i < cMethods; i++)
+            appendMethod(random, sb, "    ", i, isTest);
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private static void appendInnerClass(Random random, StringBuilder sb, String className, int i) {
+        sb.append("    /**\n    * @description ");
+        appendWords(random, sb, 1 + random.nextInt(3), "    * ");
+        sb.append("    */\n");
+        if (random.nextInt(4) == 0) {
+            sb.append("    public interface I").append(className).append("Inner").append(i).append(" {\n");
+            sb.append("        void run(List<SObject> records);\n");
+            sb.append("    }\n\n");
+            return;
+        }
+        sb.append("    public class ").append(pick(random, NOUNS).replace(" ", "")).append("Wrapper").append(i)
+                .append(" {\n");
+        int cProperties = 1 + random.nextInt(6);
+        for (int p = 0; p < cProperties; p++)
+            appendProperty(random, sb, "        ", p);
+        int cMethods = random.nextInt(3);
+        for (int m = 0; m < cMethods; m++)
+            appendMethod(random, sb, "        ", m, false);
+        sb.append("    }\n\n");
+    }
+
+    private static void appendProperty(Random random, StringBuilder sb, String indent, int i) {
+        sb.append(indent).append("/** @description ");
+        appendWords(random, sb, 1, null);
+        sb.setLength(sb.length() - 1);
+        sb.append(" */\n");
+        sb.append(indent).append(pick(random, SCOPES)).append(" ");
+        if (random.nextInt(4) == 0)
+            sb.append("static ");
+        String type = pick(random, TYPES);
+        String name = "value" + i;
+        if (random.nextBoolean()) {
+            sb.append(type).append(" ").append(name).append(" { get; ").append(random.nextInt(3) == 0 ? "private " : "")
+                    .append("set; }\n");
+        } else if (random.nextBoolean()) {
+            sb.append(type).append(" ").append(name).append(" {\n");
+            sb.append(indent).append("    get {\n");
+            sb.append(indent).append("        if (").append(name).append("Cache == null) {\n");
+            sb.append(indent).append("            ").append(name).append("Cache = (").append(type)
+                    .append(") Cache.Org.get('").append(name).append("');\n");
+            sb.append(indent).append("        }\n");
+            sb.append(indent).append("        return ").append(name).append("Cache;\n");
+            sb.append(indent).append("    }\n");
+            sb.append(indent).append("    set;\n");
+            sb.append(indent).append("}\n");
+            sb.append(indent).append("private static ").append(type).append(" ").append(name).append("Cache;\n");
+        } else {
+            sb.append(type).append(" ").append(name).append(";\n");
+        }
+    }
+
+    private static void appendMethod(Random random, StringBuilder sb, String indent, int i, boolean isTest) {
+        int cParams = isTest ? 0 : random.nextInt(random.nextInt(5) == 0 ? 8 : 4);
+        appendMethodComment(random, sb, indent, cParams, !isTest);
+
+        sb.append(indent);
+        String returnType = isTest || random.nextInt(3) == 0 ? "void" : pick(random, TYPES);
+        if (isTest)
+            sb.append("@isTest\n").append(indent).append("static ");
+        else
+            sb.append(pick(random, SCOPES)).append(random.nextInt(3) == 0 ? " static " : " ");
+        sb.append(returnType).append(" ").append(methodName(random, i)).append("(");
+        for (int p = 0; p < cParams; p++) {
+            if (p > 0)
+                sb.append(",");
+            // long parameter lists are wrapped, one parameter per line
+            if (cParams > 3)
+                sb.append("\n").append(indent).append("        ");
+            else if (p > 0)
+                sb.append(" ");
+            sb.append(pick(random, TYPES)).append(" param").append(p);
+        }
+        sb.append(") {\n");
+        appendBody(random, sb, indent + "    ", 1 + random.nextInt(random.nextInt(10) == 0 ? 60 : 8), 0);
+        if (!returnType.equals("void"))
+            sb.append(indent).append("    return null;\n");
+        sb.append(indent).append("}\n\n");
+    }
+
+    private static void appendMethodComment(Random random, StringBuilder sb, String indent, int cParams,
+                                            boolean mayHaveExample) {
+        sb.append(indent).append("/*******************************************************************************\n");
+        sb.append(indent).append("* @description ");
+        appendWords(random, sb, 1 + random.nextInt(random.nextInt(6) == 0 ? 25 : 4), indent + "* ");
+        for (int p = 0; p < cParams; p++) {
+            sb.append(indent).append("* @param param").append(p).append(" ");
+            appendWords(random, sb, 1, null);
+        }
+        sb.append(indent).append("* @return ");
+        appendWords(random, sb, 1, null);
+        if (random.nextInt(8) == 0) {
+            sb.append(indent).append("* @exception DmlException ");
+            appendWords(random, sb, 1, null);
+        }
+        if (mayHaveExample && random.nextInt(6) == 0) {
+            sb.append(indent).append("* @example\n");
+            int cLines = 1 + random.nextInt(8);
+            for (int line = 0; line < cLines; line++)
+                sb.append(indent).append("* List<Account> accounts = [SELECT Id FROM Account LIMIT ").append(line + 1)
+                        .append("];\n");
+        }
+        if (random.nextInt(30) == 0)
+            sb.append(indent).append("* @deprecated no longer called\n");
+        sb.append(indent).append("*/\n");
+    }
+
+    // a loop or if nested too deep falls through to a plainer line
+    @SuppressWarnings("fallthrough")
+    private static void appendBody(Random random, StringBuilder sb, String indent, int cLines, int depth) {
+        for (int line = 0; line < cLines; line++) {
+            switch (random.nextInt(8)) {
+                case 0:
+                    if (depth < 4) {
+                        sb.append(indent).append("for (Account acc : [SELECT Id, Name FROM Account WHERE Name != null")
+                                .append(" LIMIT ").append(line + 1).append("]) {\n");
+                        appendBody(random, sb, indent + "    ", 1 + random.nextInt(4), depth + 1);
+                        sb.append(indent).append("}\n");
+                        break;
+                    }
+                    // fall through
+                case 1:
+                    if (depth < 4) {
+                        sb.append(indent).append("if (param0 != null && ").append(line).append(" > 0) {\n");
+                        appendBody(random, sb, indent + "    ", 1 + random.nextInt(3), depth + 1);
+                        sb.append(indent).append("} else {\n");
+                        sb.append(indent).append("    System.debug('no {records} here');\n");
+                        sb.append(indent).append("}\n");
+                        break;
+                    }
+                    // fall through
+                case 2:
+                    sb.append(indent).append("// recalculates the ").append(pick(random, WORDS)).append(" {\n");
+                    break;
+                case 3:
+                    sb.append(indent).append("/* rollups ").append(pick(random, WORDS)).append(" } */\n");
+                    break;
+                case 4:
+                    sb.append(indent).append("String s").append(line).append(" = 'value; with } (punctuation) ")
+                            .append(pick(random, WORDS)).append("';\n");
+                    break;
+                case 5:
+                    sb.append(indent).append("List<Contact> contacts").append(line).append(" = new List<Contact>();\n");
+                    break;
+                case 6:
+                    sb.append(indent).append("Map<Id, Account> accounts").append(line)
+                            .append(" = new Map<Id, Account>([SELECT Id FROM Account]);\n");
+                    break;
+                default:
+                    sb.append(indent).append("update new Account(Name = '").append(pick(random, NOUNS)).append("');\n");
+                    break;
+            }
+        }
+    }
+
+    private static String methodName(Random random, int i) {
+        String noun = pick(random, NOUNS).replace(" ", "");
+        String[] verbs = { "get", "update", "calculate", "process", "validate", "build", "handle" };
+        return pick(random, verbs) + noun + i;
+    }
+
+    private static void appendWords(Random random, StringBuilder sb, int cLines, String linePrefix) {
+        for (int line = 0; line < cLines; line++) {
+            if (line > 0)
+                sb.append(linePrefix);
+            int cWords = 4 + random.nextInt(12);
+            for (int w = 0; w < cWords; w++) {
+                if (w > 0)
+                    sb.append(' ');
+                sb.append(pick(random, WORDS));
+            }
+            sb.append(".\n");
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String groupFile(String[] domain) {
+        return domain[1].replace(" ", "") + ".htm";
+    }
+
+    private static void write(File file, String contents) throws IOException {
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /*************************************************************************
+     * @description writes a corpus from the command line.
+     * @param args
+     *            - the folder, the number of classes, and optionally the seed
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: CorpusGenerator <folder> <classes> [seed]");
+            System.exit(-1);
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        int classes = Integer.parseInt(args[1]);
+        new CorpusGenerator(seed).generate(new File(args[0]), classes);
+        System.out.println("Wrote " + classes + " classes to " + args[0]);
+    }
+}
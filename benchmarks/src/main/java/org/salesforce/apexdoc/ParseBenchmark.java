@@ -0,0 +1,46 @@
+package org.salesforce.apexdoc;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*************************************************************************
+ * @description times parsing one class file's source into its ClassModel,
+ *              the work done for every class file on every run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({ "SMALL", "DOC_HEAVY", "LARGE", "DEEP" })
+    public String shape;
+
+    private char[] source;
+    private ScopeMatcher scopes;
+
+    @Setup
+    public void setup() {
+        source = ApexSources.create(ApexSources.Shape.valueOf(shape), "Bench").toCharArray();
+        scopes = ScopeMatcher.parse("global;public;webService");
+    }
+
+    @Benchmark
+    public ClassModel parse() {
+        return ApexDoc.parseSource(CharBuffer.wrap(source), scopes);
+    }
+}
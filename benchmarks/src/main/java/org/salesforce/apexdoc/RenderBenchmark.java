@@ -0,0 +1,60 @@
+package org.salesforce.apexdoc;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*************************************************************************
+ * @description times rendering one class's page, as HTML and as markdown,
+ *              with the Class Menu of a site of 50 classes. The menu is built
+ *              once, as it is for a whole run, so only the page itself is
+ *              timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    @Param({ "SMALL", "DOC_HEAVY", "LARGE", "DEEP" })
+    public String shape;
+
+    @Param({ "HTML", "MARKDOWN" })
+    public String format;
+
+    private FileManager.Site site;
+
+    @Setup
+    public void setup() {
+        ScopeMatcher scopes = ScopeMatcher.parse("global;public;webService");
+        ArrayList<ClassModel> cModels = new ArrayList<ClassModel>();
+        String source = ApexSources.create(ApexSources.Shape.valueOf(shape), "Bench");
+        cModels.add(ApexDoc.parseSource(CharBuffer.wrap(source), scopes));
+        for (int i = 0; i < 49; i++)
+            cModels.add(ApexDoc.parseSource(CharBuffer.wrap(ApexSources.smallClass("Other" + i)), scopes));
+
+        FileManager fm = new FileManager(null, scopes);
+        fm.setoutputFormat(OutputType.valueOf(format));
+        site = fm.openSite(new TreeMap<String, ClassGroup>(), cModels, "", "", "");
+    }
+
+    @Benchmark
+    public String render() {
+        return site.render("Bench");
+    }
+}
@@ -0,0 +1,325 @@
+package org.salesforce.apexdoc;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/*************************************************************************
+ * @description runs ApexDoc end to end on generated corpora of increasing
+ *              size, and reports for each size:
+ *
+ *              wallSeconds - the time to parse, render and write everything
+ *              peakHeapMB - the most heap used, the sum of each heap pool's peak
+ *              outputMB - the size of everything written
+ *              bytesPerClass - output bytes per documented class
+ *              retainedBytesPerClass - heap the parsed classes keep once the
+ *              run is done, per class
+ *
+ *              Each size runs in a JVM of its own, so one run's heap and
+ *              compiled code don't affect the next. The corpora are written
+ *              by CorpusGenerator once, and reused by later runs with the same
+ *              seed. Given a thresholds file of limits, with the same keys as
+ *              the results, such as 10000.wallSeconds=60, the harness fails
+ *              when any result is over its limit.
+ */
+public class ScaleHarness {
+
+    private static final String RESULT_PREFIX = "apexdoc-scale:";
+
+    // the defaults document large orgs the way they should be: without
+    // -sharednav, 50,000 pages would each hold a menu of 50,000 classes
+    private static final String[] DEFAULT_APEXDOC_ARGS = { "-sharednav" };
+
+    private int[] sizes = { 1000, 10000, 50000 };
+    private long seed = 1;
+    private File workDirectory = new File("scale-work");
+    private String heap;
+    private File thresholdsFile;
+    private File resultsFile;
+    private String[] apexDocArgs = DEFAULT_APEXDOC_ARGS;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("-run")) {
+            run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        ScaleHarness harness = new ScaleHarness();
+        try {
+            harness.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            printHelp();
+            System.exit(-1);
+        }
+        System.exit(harness.runAll() ? 0 : 1);
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--")) {
+                apexDocArgs = Arrays.copyOfRange(args, i + 1, args.length);
+                return;
+            }
+            if (i + 1 >= args.length)
+                throw new IllegalArgumentException("Missing value for " + arg);
+            String value = args[++i];
+            if (arg.equals("-sizes")) {
+                String[] values = value.split(",");
+                sizes = new int[values.length];
+                for (int j = 0; j < values.length; j++)
+                    sizes[j] = Integer.parseInt(values[j].trim());
+            } else if (arg.equals("-seed")) {
+                seed = Long.parseLong(value);
+            } else if (arg.equals("-work")) {
+                workDirectory = new File(value);
+            } else if (arg.equals("-heap")) {
+                heap = value;
+            } else if (arg.equals("-thresholds")) {
+                thresholdsFile = new File(value);
+            } else if (arg.equals("-results")) {
+                resultsFile = new File(value);
+            } else {
+                throw new IllegalArgumentException("Unknown parameter " + arg);
+            }
+        }
+    }
+
+    private static void printHelp() {
+        System.out.println("ScaleHarness [-sizes 1000,10000,50000] [-seed 1] [-work scale-work] [-heap 4g]");
+        System.out.println("             [-thresholds limits.properties] [-results results.properties]");
+        System.out.println("             [-- ApexDoc parameters, -sharednav if none are given]");
+    }
+
+    // runs every size, and returns false if any failed or went over a limit
+    private boolean runAll() throws IOException, InterruptedException {
+        Properties thresholds = new Properties();
+        if (thresholdsFile != null) {
+            InputStream in = new FileInputStream(thresholdsFile);
+            try {
+                thresholds.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        // the corpora are written first, so the table isn't broken up
+        File[] corpora = new File[sizes.length];
+        for (int i = 0; i < sizes.length; i++)
+            corpora[i] = corpus(sizes[i]);
+
+        System.out.println("ApexDoc scale test, seed " + seed + ", ApexDoc parameters: " +
+                String.join(" ", apexDocArgs));
+        System.out.println(String.format("%10s %10s %13s %10s %12s %15s", "classes", "wall s", "peak heap MB",
+                "output MB", "bytes/class", "retained/class"));
+
+        TreeMap<String, String> results = new TreeMap<String, String>();
+        boolean ok = true;
+        for (int i = 0; i < sizes.length; i++) {
+            int size = sizes[i];
+            File corpus = corpora[i];
+            File target = new File(workDirectory, "docs-" + size);
+            delete(target);
+
+            Map<String, Long> run = runChild(corpus, target);
+            if (run == null) {
+                ok = false;
+                continue;
+            }
+            long classes = Math.max(1, run.get("classes"));
+            LinkedHashMap<String, Double> metrics = new LinkedHashMap<String, Double>();
+            metrics.put("wallSeconds", run.get("wallMs") / 1000.0);
+            metrics.put("peakHeapMB", run.get("peakHeapBytes") / 1048576.0);
+            metrics.put("outputMB", run.get("outputBytes") / 1048576.0);
+            metrics.put("bytesPerClass", (double) (run.get("outputBytes") / classes));
+            metrics.put("retainedBytesPerClass", (double) (run.get("retainedBytes") / classes));
+            System.out.println(String.format("%10d %10.2f %13.1f %10.1f %12.0f %15.0f", run.get("classes"),
+                    metrics.get("wallSeconds"), metrics.get("peakHeapMB"), metrics.get("outputMB"),
+                    metrics.get("bytesPerClass"), metrics.get("retainedBytesPerClass")));
+
+            for (Map.Entry<String, Double> metric : metrics.entrySet()) {
+                String key = size + "." + metric.getKey();
+                results.put(key, String.format("%.2f", metric.getValue()));
+                String limit = thresholds.getProperty(key);
+                if (limit != null && metric.getValue() > Double.parseDouble(limit.trim())) {
+                    System.out.println(String.format("REGRESSION: %s is %.2f, over the limit of %s", key,
+                            metric.getValue(), limit.trim()));
+                    ok = false;
+                }
+            }
+        }
+
+        if (resultsFile != null) {
+            PrintWriter out = new PrintWriter(resultsFile, "UTF-8");
+            try {
+                out.println("# ApexDoc scale test, seed " + seed + ", ApexDoc parameters: " +
+                        String.join(" ", apexDocArgs));
+                for (Map.Entry<String, String> result : results.entrySet())
+                    out.println(result.getKey() + "=" + result.getValue());
+            } finally {
+                out.close();
+            }
+        }
+        return ok;
+    }
+
+    // the corpus of the given size, written the first time it is needed
+    private File corpus(int size) throws IOException {
+        File corpus = new File(workDirectory, "corpus-" + seed + "-" + size);
+        if (corpus.isDirectory())
+            return corpus;
+        // written under another name first, so a corpus left half written isn't used
+        File partial = new File(workDirectory, "corpus-" + seed + "-" + size + ".partial");
+        delete(partial);
+        System.out.println("Writing " + size + " classes to " + corpus);
+        new CorpusGenerator(seed).generate(partial, size);
+        if (!partial.renameTo(corpus))
+            throw new IOException("can't rename " + partial + " to " + corpus);
+        return corpus;
+    }
+
+    // runs ApexDoc on the corpus in a JVM of its own, and returns what it measured
+    private Map<String, Long> runChild(File corpus, File target) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (heap != null)
+            command.add("-Xmx" + heap);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ScaleHarness.class.getName());
+        command.add("-run");
+        command.add("-s");
+        command.add(corpus.getPath());
+        command.add("-t");
+        command.add(target.getPath());
+        command.addAll(Arrays.asList(apexDocArgs));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Map<String, Long> result = null;
+        // ApexDoc's own output is only shown when the run fails
+        LinkedList<String> tail = new LinkedList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(RESULT_PREFIX)) {
+                    result = parseResult(line.substring(RESULT_PREFIX.length()));
+                } else {
+                    tail.add(line);
+                    if (tail.size() > 40)
+                        tail.removeFirst();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        int exitCode = process.waitFor();
+        if (exitCode != 0 || result == null) {
+            System.out.println("FAILED: ApexDoc exited with " + exitCode + " on " + corpus + ":");
+            for (String line : tail)
+                System.out.println("    " + line);
+            return null;
+        }
+        return result;
+    }
+
+    private static Map<String, Long> parseResult(String line) {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (String pair : line.trim().split(" ")) {
+            int idx = pair.indexOf('=');
+            result.put(pair.substring(0, idx), Long.parseLong(pair.substring(idx + 1)));
+        }
+        return result;
+    }
+
+    /*************************************************************************
+     * @description the child JVM: runs ApexDoc as RunApexDoc does, measures
+     *              it, and prints the measurements on one line.
+     * @param args
+     *            - ApexDoc's parameters
+     */
+    private static void run(String[] args) throws InterruptedException {
+        ApexDocConfig config = ApexDocConfig.fromArgs(args);
+        List<MemoryPoolMXBean> heapPools = new ArrayList<MemoryPoolMXBean>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        long start = System.nanoTime();
+        ApexDocEngine engine = new ApexDocEngine(config);
+        LinkedHashMap<File, ClassModel> mapFileToModel;
+        try {
+            mapFileToModel = engine.generate(config, null);
+        } finally {
+            engine.close();
+        }
+        long wallMs = (System.nanoTime() - start) / 1000000;
+
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : heapPools)
+            peakHeapBytes += pool.getPeakUsage().getUsed();
+
+        // what the parsed classes hold on to is what goes when they do
+        long withModels = usedHeap();
+        // read after measuring, so the models can't be collected before it
+        int classes = mapFileToModel.size();
+        mapFileToModel = null;
+        long retainedBytes = Math.max(0, withModels - usedHeap());
+
+        long[] output = new long[2];
+        measure(new File(config.getTargetDirectory()), output);
+
+        System.out.println(RESULT_PREFIX + " classes=" + classes + " wallMs=" + wallMs + " peakHeapBytes=" +
+                peakHeapBytes + " retainedBytes=" + retainedBytes + " outputBytes=" + output[0] +
+                " outputFiles=" + output[1]);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    // adds up the bytes and number of files under a folder
+    private static void measure(File file, long[] output) {
+        File[] children = file.listFiles();
+        if (children == null) {
+            output[0] += file.length();
+            output[1]++;
+            return;
+        }
+        for (File child : children)
+            measure(child, output);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children)
+                delete(child);
+        }
+        file.delete();
+    }
+}
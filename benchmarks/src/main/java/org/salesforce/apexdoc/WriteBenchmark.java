@@ -0,0 +1,130 @@
+package org.salesforce.apexdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*************************************************************************
+ * @description times writing pages: encoding and writing one rendered page
+ *              to a file, and a whole run over 200 classes of every shape,
+ *              written to a folder and handed to a PageSink in memory. The
+ *              difference between the two runs is the time spent writing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    private static final int CLASSES = 200;
+
+    @Param({ "SMALL", "DOC_HEAVY", "LARGE", "DEEP" })
+    public String shape;
+
+    private File targetDirectory;
+    private String pageFile;
+    private String page;
+    private LinkedHashMap<String, String> sources;
+    private ApexDocEngine engine;
+    private ApexDocConfig diskConfig;
+    private ApexDocConfig memoryConfig;
+    private PrintStream stdout;
+
+    @Setup
+    public void setup() throws IOException {
+        targetDirectory = Files.createTempDirectory("apexdoc-bench").toFile();
+        pageFile = new File(targetDirectory, "Bench.html").getPath();
+
+        ScopeMatcher scopes = ScopeMatcher.parse("global;public;webService");
+        ArrayList<ClassModel> cModels = new ArrayList<ClassModel>();
+        String source = ApexSources.create(ApexSources.Shape.valueOf(shape), "Bench");
+        cModels.add(ApexDoc.parseSource(CharBuffer.wrap(source), scopes));
+        FileManager fm = new FileManager(null, scopes);
+        page = fm.openSite(new TreeMap<String, ClassGroup>(), cModels, "", "", "").render("Bench");
+
+        // the whole runs use every shape, whichever shape is the parameter
+        File sourceDirectory = new File(targetDirectory, "classes");
+        sourceDirectory.mkdir();
+        sources = new LinkedHashMap<String, String>();
+        ApexSources.Shape[] shapes = ApexSources.Shape.values();
+        for (int i = 0; i < CLASSES; i++) {
+            String className = "Class" + i;
+            String classSource = ApexSources.create(shapes[i % shapes.length], className);
+            sources.put(className + ".cls", classSource);
+            OutputWriter.write(new File(sourceDirectory, className + ".cls").getPath(), classSource);
+        }
+
+        engine = new ApexDocEngine(1, 4);
+        diskConfig = new ApexDocConfig.Builder()
+                .setSourceDirectory(sourceDirectory.getPath())
+                .setTargetDirectory(new File(targetDirectory, "docs").getPath())
+                .build();
+        memoryConfig = new ApexDocConfig.Builder().build();
+
+        // ApexDoc reports each run's progress, which would drown JMH's output
+        stdout = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            public void write(int b) {
+            }
+
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        engine.close();
+        delete(targetDirectory);
+    }
+
+    @Benchmark
+    public void writePage() throws IOException {
+        OutputWriter.write(pageFile, page);
+    }
+
+    @Benchmark
+    public LinkedHashMap<File, ClassModel> generateToDisk() {
+        return engine.generate(diskConfig, null);
+    }
+
+    @Benchmark
+    public LinkedHashMap<String, ClassModel> generateToSink() {
+        return engine.generate(sources, memoryConfig, new PageSink() {
+            public void page(String name, byte[] contents) {
+            }
+        }, null);
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children)
+                delete(child);
+        }
+        file.delete();
+    }
+}
@@ -1,25 +1,41 @@
 package org.salesforce.apexdoc;
 
-import java.io.BufferedReader;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.lang.reflect.InvocationTargetException;
+import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Stack;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
 
 public class ApexDoc {
 
-    public static FileManager fm;
-    public static String[] rgstrScope;
     public static String[] rgstrArgs;
 
+    // the version of what the parser makes of a class file. ModelCache mixes it into
+    // its keys, so a cache written by another version is parsed again rather than reused.
+    // Add one to it with any change to the parser or the models that changes the
+    // ClassModel a class file gives, such as a tag read differently or a new field.
+    static final int PARSER_VERSION = 1;
+
+    // most parsed classes the daemon keeps in memory
+    private static final int DAEMON_MODELS = 100000;
+
+    // states for skipping annotations while parsing a statement
+    private static final int ANNOTATION_NONE = 0;
+    private static final int ANNOTATION_NAME = 1;
+    private static final int ANNOTATION_PARAMS = 2;
+    private static final int ANNOTATION_IN_PARAMS = 3;
+
     public ApexDoc() {
         try {
             File file = new File("apex_doc_log.txt");
@@ -33,7 +49,13 @@ public class ApexDoc {
     // public entry point when called from the command line.
     public static void main(String[] args) {
         try {
-            RunApexDoc(args, null);
+            if (args.length >= 2 && args[0].equalsIgnoreCase("-daemon")) {
+                RunDaemon(Integer.parseInt(args[1]), Arrays.copyOfRange(args, 2, args.length));
+            } else if (args.length >= 2 && args[0].equalsIgnoreCase("-client")) {
+                RunClient(Integer.parseInt(args[1]), Arrays.copyOfRange(args, 2, args.length));
+            } else {
+                RunApexDoc(args, null);
+            }
         } catch (Exception ex) {
             ex.printStackTrace();
             System.out.println(ex.getMessage());
@@ -44,556 +66,495 @@ public class ApexDoc {
 
     // public entry point when called from the Eclipse PlugIn.
     // assumes PlugIn previously sets rgstrArgs before calling run.
+    // a run the monitor cancels ends with an InterruptedException, as Eclipse expects.
     public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
-        RunApexDoc(rgstrArgs, monitor);
+        try {
+            RunApexDoc(rgstrArgs, monitor);
+        } catch (CancellationException e) {
+            throw new InterruptedException(e.getMessage());
+        }
     }
 
     // public main routine which is used by both command line invocation and
     // Eclipse PlugIn invocation
     public static void RunApexDoc(String[] args, IProgressMonitor monitor) {
-        String sourceDirectory = "";
-        String targetDirectory = "";
-        String homefilepath = "";
-        String authorfilepath = "";
-        String hostedSourceURL = "";
-        Boolean outputMarkdown = false;
-
-        // parse command line parameters
-        for (int i = 0; i < args.length; i++) {
-
-            if (args[i] == null) {
-                continue;
-            } else if (args[i].equalsIgnoreCase("-s")) {
-                sourceDirectory = args[++i];
-            } else if (args[i].equalsIgnoreCase("-g")) {
-                hostedSourceURL = args[++i];
-            } else if (args[i].equalsIgnoreCase("-t")) {
-                targetDirectory = args[++i];
-            } else if (args[i].equalsIgnoreCase("-h")) {
-                homefilepath = args[++i];
-            } else if (args[i].equalsIgnoreCase("-a")) {
-                authorfilepath = args[++i];
-            } else if (args[i].equalsIgnoreCase("-p")) {
-                String strScope = args[++i];
-                rgstrScope = strScope.split(";");
-            } else if (args[i].equalsIgnoreCase("-md")) {
-                outputMarkdown = true;
-            } else {
-                printHelp();
-                System.exit(-1);
-            }
-        }
-
-        // default scope to global and public if not specified
-        if (rgstrScope == null || rgstrScope.length == 0) {
-            rgstrScope = new String[3];
-            rgstrScope[0] = "global";
-            rgstrScope[1] = "public";
-            rgstrScope[2] = "webService";
+        ApexDocConfig config = null;
+        try {
+            config = ApexDocConfig.fromArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            printHelp();
+            System.exit(-1);
         }
 
-        // find all the files to parse
-        fm = new FileManager(targetDirectory);
-        ArrayList<File> files = fm.getFiles(sourceDirectory);
-        ArrayList<ClassModel> cModels = new ArrayList<ClassModel>();
-
-        if (monitor != null) {
-            // each file is parsed, html created, written to disk.
-            // but for each class file, there is an xml file we'll ignore.
-            // plus we add 2 for the author file and home file loading.
-            monitor.beginTask("ApexDoc - documenting your Apex Class files.", (files.size() / 2) * 3 + 2);
-        }
-        // parse each file, creating a class model for it
-        for (File fromFile : files) {
-            String fromFileName = fromFile.getAbsolutePath();
-            if (fromFileName.endsWith(".cls")) {
-                ClassModel cModel = parseFileContents(fromFileName);
-                if (cModel != null) {
-                    cModels.add(cModel);
+        ApexDocEngine engine = new ApexDocEngine(config);
+        try {
+            if (config.getServePort() >= 0) {
+                // the server keeps the process running
+                try {
+                    engine.serve(config, monitor);
+                } catch (IOException e) {
+                    System.out.println("ApexDoc can't serve on port " + config.getServePort() + ": " + e.getMessage());
                 }
+                return;
             }
-            if (monitor != null)
-                monitor.worked(1);
-        }
-
-        // create our Groups
-        TreeMap<String, ClassGroup> mapGroupNameToClassGroup = createMapGroupNameToClassGroup(cModels, sourceDirectory);
+            LinkedHashMap<File, ClassModel> mapFileToModel = engine.generate(config, monitor);
 
-        // load up optional specified file templates
-        String projectDetail = fm.parseHTMLFile(authorfilepath);
-        if (monitor != null)
-            monitor.worked(1);
-        String homeContents = fm.parseHTMLFile(homefilepath);
-        if (monitor != null)
-            monitor.worked(1);
+            // we are done!
+            System.out.println("ApexDoc has completed!");
 
-        if (outputMarkdown) {
-            System.out.println("gonna create some markdown now!");
-            fm.setoutputFormat(OutputType.MARKDOWN);
+            if (config.isWatch())
+                engine.watch(config, mapFileToModel);
+        } finally {
+            engine.close();
         }
+    }
 
-        fm.createDoc(mapGroupNameToClassGroup, cModels, projectDetail, homeContents, hostedSourceURL, monitor);
-
-        if (monitor != null)
-            monitor.done();
+    /*************************************************************************
+     * @description runs the daemon until the process is stopped. the engine
+     *              is sized by -threads and -writers, and its parsed classes
+     *              are shared by every run.
+     * @param port
+     * @param args
+     *            - the daemon's own parameters
+     * @throws IOException
+     */
+    private static void RunDaemon(int port, String[] args) throws IOException {
+        ApexDocConfig config = ApexDocConfig.fromArgs(args);
+        ApexDocEngine engine = new ApexDocEngine(config.getThreads(), config.getWriters(), DAEMON_MODELS);
+        ApexDocDaemon daemon = new ApexDocDaemon(port, engine);
+        try {
+            daemon.serve();
+        } finally {
+            daemon.close();
+            engine.close();
+        }
+    }
 
-        // we are done!
-        System.out.println("ApexDoc has completed!");
+    // runs on the daemon, or right here if no daemon is listening on the port.
+    private static void RunClient(int port, String[] args) {
+        boolean succeeded;
+        try {
+            succeeded = ApexDocDaemon.runClient(port, args);
+        } catch (ConnectException e) {
+            System.out.println("ApexDoc daemon isn't running on port " + port + ", so running here.");
+            RunApexDoc(args, null);
+            return;
+        } catch (IOException e) {
+            System.out.println(ApexDocDaemon.STATUS_FAILED + ": " + e.getMessage());
+            succeeded = false;
+        }
+        if (!succeeded)
+            System.exit(1);
     }
 
     private static void printHelp() {
         System.out.println("ApexDoc - a tool for generating documentation from Salesforce Apex code class files.\n");
         System.out.println("    Invalid Arguments detected.  The correct syntax is:\n");
-        System.out.println("apexdoc -s <source_directory> [-t <target_directory>] [-g <source_url>] [-h <homefile>] [-a <authorfile>] [-p <scope>] [-md]\n");
+        System.out.println("apexdoc -s <source_directory> [-t <target_directory>] [-g <source_url>] [-h <homefile>] [-a <authorfile>] [-p <scope>] [-recursive] [-include <globs>] [-exclude <globs>] [-md] [-threads <count>] [-writers <count>] [-cache] [-incremental] [-watch] [-stream <pages>] [-sharednav] [-serve <port>] [-pagecache <megabytes>] [-servethreads <count>] [-stats <file>]\n");
         System.out.println("<source_directory> - The folder location which contains your apex .cls classes");
         System.out.println("<target_directory> - Optional. Specifies your target folder where documentation will be generated.");
         System.out.println("<source_url> - Optional. Specifies a URL where the source is hosted (so ApexDoc can provide links to your source).");
         System.out.println("<homefile> - Optional. Specifies the html file that contains the contents for the home page\'s content area.");
         System.out.println("<authorfile> - Optional. Specifies the text file that contains project information for the documentation header.");
         System.out.println("<scope> - Optional. Semicolon seperated list of scopes to document.  Defaults to 'global;public'. ");
+        System.out.println("-recursive - Optional. Also documents the class files in the source folder's subfolders.");
+        System.out.println("-include <globs> - Optional. Semicolon separated globs of the class files to document, such as 'ACCT_*.cls;force-app/**'.");
+        System.out.println("-exclude <globs> - Optional. Semicolon separated globs of class files and folders to leave out, such as '*Test.cls'.");
         System.out.println("-md Output Files in Markdown format instead of HTML");
+        System.out.println("-threads <count> - Optional. Number of threads used to parse the class files and render their pages.  Defaults to 1.");
+        System.out.println("-writers <count> - Optional. Number of threads used to write the pages.  Defaults to 4.");
+        System.out.println("-cache - Optional. Keeps parsed classes in the target folder, so unchanged files aren't parsed again.");
+        System.out.println("-incremental - Optional. Only regenerates the pages whose classes, menu or header changed since the last run.");
+        System.out.println("-watch - Optional. Keeps running, and regenerates the pages of class files as they are saved.");
+        System.out.println("-stream <pages> - Optional. Writes pages as they are created, holding at most this many in memory.");
+        System.out.println("-sharednav - Optional. Writes the class menu once, to " + FileManager.NAV_FILE + ".html, for every page to load, instead of into every page.");
+        System.out.println("-serve <port> - Optional. Serves the documentation on http://localhost:<port>/, creating each page when it is first asked for, instead of writing the pages.");
+        System.out.println("-pagecache <megabytes> - Optional. Most memory -serve keeps created pages in.  Defaults to 64.");
+        System.out.println("-servethreads <count> - Optional. Number of threads -serve answers requests on.  Defaults to the number of processors, or -threads if that is more.");
+        System.out.println("-stats <file> - Optional. Writes each class file's size, parse, render and write times to a report, as CSV if the file ends in .csv, and as JSON otherwise.");
+        System.out.println("\napexdoc -daemon <port> [-threads <count>] [-writers <count>] keeps ApexDoc running in the background, for clients on this machine.");
+        System.out.println("apexdoc -client <port> <parameters> runs ApexDoc on the daemon listening on the port.");
     }
 
-    private static TreeMap<String, ClassGroup> createMapGroupNameToClassGroup(ArrayList<ClassModel> cModels,
-                                                                              String sourceDirectory) {
-        TreeMap<String, ClassGroup> map = new TreeMap<String, ClassGroup>();
-        for (ClassModel cmodel : cModels) {
-            String strGroup = cmodel.getClassGroup();
-            String strGroupContent = cmodel.getClassGroupContent();
-            if (strGroupContent != null)
-                strGroupContent = sourceDirectory + "/" + strGroupContent;
-            ClassGroup cg;
-            if (strGroup != null) {
-                cg = map.get(strGroup);
-                if (cg == null)
-                    cg = new ClassGroup(strGroup, strGroupContent);
-                else if (cg.getContentSource() == null)
-                    cg.setContentSource(strGroupContent);
-                // put the new or potentially modified ClassGroup back in the map
-                map.put(strGroup, cg);
-            }
+    public static ClassModel parseFileContents(String filePath, ScopeMatcher scopes) {
+        try {
+            byte[] bytes = Files.readAllBytes(Paths.get(filePath));
+            return parseSource(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes)), scopes);
+        } catch (Exception e) { // Catch exception if any
+            System.err.println("Error: " + e.getMessage());
         }
-        return map;
+
+        return null;
     }
 
-    public static ClassModel parseFileContents(String filePath) {
-        try {
-            FileInputStream fstream = new FileInputStream(filePath);
-            // Get the object of DataInputStream
-            DataInputStream in = new DataInputStream(fstream);
-            BufferedReader br = new BufferedReader(new InputStreamReader(in));
-            String strLine;
-            boolean commentsStarted = false;
-            boolean docBlockStarted = false;
-            int nestedCurlyBraceDepth = 0;
-            ArrayList<String> lstComments = new ArrayList<String>();
-            ClassModel cModel = null;
-            ClassModel cModelParent = null;
-            Stack<ClassModel> cModels = new Stack<ClassModel>();
-
-            // DH: Consider using java.io.StreamTokenizer to read the file a
-            // token at a time?
-            //
-            // new strategy notes:
-            // any line with " class " is a class definition
-            // any line with scope (global, public, private) is a class, method,
-            // or property definition.
-            // you can detect a method vs. a property by the presence of ( )'s
-            // you can also detect properties by get; or set;, though they may
-            // not be on the first line.
-            // in apex, methods that start with get and take no params, or set
-            // with 1 param, are actually properties.
-            //
-
-            int iLine = 0;
-            while ((strLine = br.readLine()) != null) {
-                iLine++;
-
-                strLine = strLine.trim();
-                if (strLine.length() == 0)
-                    continue;
+    /*************************************************************************
+     * @description parses the contents of a class file in a single pass over
+     *              its characters.
+     *
+     *              the lexer splits the source into tokens, and the tokens are
+     *              grouped into statements that end at ; { or }. any statement
+     *              with a scope keyword (or any statement with ( )'s in an
+     *              interface) is a declaration:
+     *              - with class or interface, it is a class.
+     *              - with ( )'s before any =, it is a method.
+     *              - ending in get or set, it is a property accessor, ignored.
+     *              - otherwise it is a property.
+     *              doc comments are collected until the next declaration
+     *              consumes them. method bodies are skipped without being
+     *              tokenized, so the work done grows with the declarations
+     *              and doc comments rather than with the size of the file.
+     * @param source
+     * @param scopes
+     * @return the top level ClassModel, or null if none found
+     */
+    public static ClassModel parseSource(CharBuffer source, ScopeMatcher scopes) {
+        char[] buf;
+        int offset;
+        int limit;
+        if (source.hasArray()) {
+            buf = source.array();
+            offset = source.arrayOffset() + source.position();
+            limit = source.arrayOffset() + source.limit();
+        } else {
+            buf = new char[source.remaining()];
+            source.duplicate().get(buf);
+            offset = 0;
+            limit = buf.length;
+        }
+        ApexLexer lexer = new ApexLexer(buf, offset, limit);
+
+        ArrayList<String> lstComments = new ArrayList<String>();
+        ClassModel cModel = null;
+        ClassModel cModelParent = null;
+        Stack<ClassModel> cModels = new Stack<ClassModel>();
+        // the curly brace depth inside the body of each class on the stack
+        Stack<Integer> classDepths = new Stack<Integer>();
+        int nestedCurlyBraceDepth = 0;
+
+        // the statement being scanned
+        int stmtStart = -1;
+        int stmtEnd = -1;
+        int stmtLine = 0;
+        int lastTokenLine = 0;
+        int parenDepth = 0;
+        boolean hasScope = false;
+        boolean hasClass = false;
+        boolean hasParen = false;
+        boolean isCut = false;
+        boolean endsWithAccessor = false;
+
+        // leading annotations are kept only when they share the declaration's line.
+        boolean onlyAnnotations = true;
+        int annotationState = ANNOTATION_NONE;
+        int annotationParenDepth = 0;
+
+        ApexLexer.TokenType type;
+        while ((type = lexer.next()) != ApexLexer.TokenType.EOF) {
+
+            if (type == ApexLexer.TokenType.DOC_COMMENT) {
+                lexer.addCommentLines(lstComments);
+                continue;
+            }
 
-                // ignore anything after // style comments. this allows hiding of tokens from ApexDoc.
-                int ich = strLine.indexOf("//");
-                if (ich > -1) {
-                    strLine = strLine.substring(0, ich);
-                }
+            boolean isTerminator = type == ApexLexer.TokenType.LBRACE || type == ApexLexer.TokenType.RBRACE ||
+                    (type == ApexLexer.TokenType.SEMICOLON && parenDepth == 0);
 
-                // gather up our comments
-                if (strLine.startsWith("/*")) {
-                    commentsStarted = true;
-                    boolean commentEnded = false;
-                    if(strLine.startsWith("/**")){
-                        if (strLine.endsWith("*/")) {
-                            strLine = strLine.replace("*/", "");
-                            commentEnded = true;
-                        }
-                        lstComments.add(strLine);
-                        docBlockStarted = true;
-                    }
-                    if (strLine.endsWith("*/") || commentEnded) {
-                        commentsStarted = false;
-                        docBlockStarted = false;
-                    }
-                    continue;
+            if (!isTerminator) {
+                int line = lexer.getLine();
+                boolean isAnnotationDone = annotationState == ANNOTATION_NONE ||
+                        (annotationState == ANNOTATION_PARAMS && type != ApexLexer.TokenType.LPAREN);
+                if (stmtStart == -1 || (onlyAnnotations && isAnnotationDone && line > lastTokenLine)) {
+                    stmtStart = lexer.getStart();
+                    stmtLine = line;
                 }
+                lastTokenLine = line;
 
-                if (commentsStarted && strLine.endsWith("*/")) {
-                    strLine = strLine.replace("*/", "");
-                    if(docBlockStarted){
-                        lstComments.add(strLine);
-                        docBlockStarted = false;
-                    }
-                    commentsStarted = false;
+                // skip over annotations, including any parameters they take.
+                if (annotationState == ANNOTATION_NAME) {
+                    annotationState = type == ApexLexer.TokenType.WORD ? ANNOTATION_PARAMS : ANNOTATION_NONE;
                     continue;
                 }
-
-                if (commentsStarted) {
-                    if(docBlockStarted){
-                        lstComments.add(strLine);
-                    }
+                if (annotationState == ANNOTATION_PARAMS && type == ApexLexer.TokenType.LPAREN) {
+                    annotationState = ANNOTATION_IN_PARAMS;
+                    annotationParenDepth = 1;
                     continue;
                 }
-
-                // keep track of our nesting so we know which class we are in
-                int openCurlies = countChars(strLine, '{');
-                int closeCurlies = countChars(strLine, '}');
-                nestedCurlyBraceDepth += openCurlies;
-                nestedCurlyBraceDepth -= closeCurlies;
-
-                // if we are in a nested class, and we just got back to nesting level 1,
-                // then we are done with the nested class, and should set its props and methods.
-                if (nestedCurlyBraceDepth == 1 && openCurlies != closeCurlies && cModels.size() > 1 && cModel != null) {
-                    cModels.pop();
-                    cModel = cModels.peek();
+                if (annotationState == ANNOTATION_IN_PARAMS) {
+                    if (type == ApexLexer.TokenType.LPAREN)
+                        annotationParenDepth++;
+                    else if (type == ApexLexer.TokenType.RPAREN && --annotationParenDepth == 0)
+                        annotationState = ANNOTATION_NONE;
                     continue;
                 }
-
-                // ignore anything after an =. this avoids confusing properties with methods.
-                ich = strLine.indexOf("=");
-                if (ich > -1) {
-                    strLine = strLine.substring(0, ich);
+                annotationState = ANNOTATION_NONE;
+                if (type == ApexLexer.TokenType.AT && onlyAnnotations) {
+                    annotationState = ANNOTATION_NAME;
+                    continue;
                 }
+                onlyAnnotations = false;
 
-                // ignore anything after an {. this avoids confusing properties with methods.
-                ich = strLine.indexOf("{");
-                if (ich > -1) {
-                    strLine = strLine.substring(0, ich);
+                if (type == ApexLexer.TokenType.LPAREN) {
+                    parenDepth++;
+                    hasParen |= !isCut;
+                } else if (type == ApexLexer.TokenType.RPAREN) {
+                    parenDepth--;
                 }
 
-                // ignore lines not dealing with scope
-                if (strContainsScope(strLine) == null &&
-                        // interface methods don't have scope
-                        !(cModel != null && cModel.getIsInterface() && strLine.contains("("))) {
+                // ignore anything after an =. this avoids confusing properties with methods.
+                if (isCut)
+                    continue;
+                if (type == ApexLexer.TokenType.EQUALS && parenDepth == 0) {
+                    isCut = true;
                     continue;
                 }
+                if (type == ApexLexer.TokenType.WORD && parenDepth == 0) {
+                    if (lexer.isScope(scopes))
+                        hasScope = true;
+                    else if (lexer.is("class") || lexer.is("interface"))
+                        hasClass = true;
+                }
+                endsWithAccessor = parenDepth == 0 && (lexer.is("get") || lexer.is("set"));
+                stmtEnd = lexer.getEnd();
+                continue;
+            }
 
-                // look for a class
-                if ((strLine.toLowerCase().contains(" class ") || strLine.toLowerCase().contains(" interface "))) {
+            // we have a complete statement, see if it declares something
+            ClassModel cModelNew = null;
+            if (stmtStart != -1 && !onlyAnnotations &&
+                    (hasScope ||
+                    // interface methods don't have scope
+                    (cModel != null && cModel.getIsInterface() && hasParen))) {
 
+                String strLine = lexer.text(stmtStart, stmtEnd);
+
+                if (hasClass) {
                     // create the new class
-                    ClassModel cModelNew = new ClassModel(cModelParent);
-                    fillClassModel(cModelParent, cModelNew, strLine, lstComments, iLine);
+                    cModelNew = new ClassModel(cModelParent);
+                    fillClassModel(cModelParent, cModelNew, strLine, lstComments, stmtLine, scopes);
                     lstComments.clear();
 
-                    // keep track of the new class, as long as it wasn't a single liner {}
-                    // but handle not having any curlies on the class line!
-                    if (openCurlies == 0 || openCurlies != closeCurlies) {
-                        cModels.push(cModelNew);
-                        cModel = cModelNew;
-                    }
-
                     // add it to its parent (or track the parent)
                     if (cModelParent != null)
                         cModelParent.addChildClass(cModelNew);
                     else
                         cModelParent = cModelNew;
-                    continue;
-                }
-
-                // look for a method
-                if (strLine.contains("(")) {
-                    // deal with a method over multiple lines.
-                    while (!strLine.contains(")")) {
-                        strLine += br.readLine();
-                        iLine++;
-                    }
+                } else if (cModel != null && hasParen) {
                     MethodModel mModel = new MethodModel();
-                    fillMethodModel(mModel, strLine, lstComments, iLine);
-                    cModel.getMethods().add(mModel);
+                    fillMethodModel(mModel, strLine, lstComments, stmtLine, scopes);
+                    cModel.addMethod(mModel);
+                    lstComments.clear();
+                } else if (cModel != null && !endsWithAccessor) {
+                    // must be a property
+                    PropertyModel propertyModel = new PropertyModel();
+                    fillPropertyModel(propertyModel, strLine, lstComments, stmtLine, scopes);
+                    cModel.addProperty(propertyModel);
                     lstComments.clear();
-                    continue;
                 }
+            }
 
-                // handle set & get within the property
-                if (strLine.contains(" get ") ||
-                        strLine.contains(" set ") ||
-                        strLine.contains(" get;") ||
-                        strLine.contains(" set;") ||
-                        strLine.contains(" get{") ||
-                        strLine.contains(" set{"))
-                    continue;
-
-                // must be a property
-                PropertyModel propertyModel = new PropertyModel();
-                fillPropertyModel(propertyModel, strLine, lstComments, iLine);
-                cModel.getProperties().add(propertyModel);
-                lstComments.clear();
-                continue;
-
+            // a method body never holds anything we document, so when a method
+            // signature opens a block at declaration depth, jump straight to its
+            // closing brace instead of scanning the body a token at a time.
+            boolean isMethodBody = type == ApexLexer.TokenType.LBRACE && stmtStart != -1 && hasParen &&
+                    !hasClass && !isCut && !classDepths.isEmpty() && nestedCurlyBraceDepth == classDepths.peek();
+
+            // keep track of our nesting so we know which class we are in
+            if (isMethodBody) {
+                lexer.skipBlock();
+            } else if (type == ApexLexer.TokenType.LBRACE) {
+                nestedCurlyBraceDepth++;
+                if (cModelNew != null) {
+                    cModels.push(cModelNew);
+                    classDepths.push(nestedCurlyBraceDepth);
+                    cModel = cModelNew;
+                }
+            } else if (type == ApexLexer.TokenType.RBRACE) {
+                nestedCurlyBraceDepth--;
+                // if we are in a nested class, and we just closed its body,
+                // then we are done with the nested class.
+                if (cModels.size() > 1 && nestedCurlyBraceDepth < classDepths.peek()) {
+                    cModels.pop();
+                    classDepths.pop();
+                    cModel = cModels.peek();
+                }
             }
 
-            // Close the input stream
-            in.close();
-            // we only want to return the parent class
-            return cModelParent;
-        } catch (Exception e) { // Catch exception if any
-            System.err.println("Error: " + e.getMessage());
+            // start a new statement
+            stmtStart = -1;
+            parenDepth = 0;
+            hasScope = false;
+            hasClass = false;
+            hasParen = false;
+            isCut = false;
+            endsWithAccessor = false;
+            onlyAnnotations = true;
+            annotationState = ANNOTATION_NONE;
         }
 
-        return null;
-    }
-
-    public static String strContainsScope(String str) {
-        str = str.toLowerCase();
-        for (int i = 0; i < rgstrScope.length; i++) {
-            if (str.toLowerCase().contains(rgstrScope[i].toLowerCase() + " ")) {
-                return rgstrScope[i];
-            }
-        }
-        return null;
+        // we only want to return the parent class
+        return cModelParent;
     }
 
     private static void fillPropertyModel(PropertyModel propertyModel, String name, ArrayList<String> lstComments,
-                                          int iLine) {
+                                          int iLine, ScopeMatcher scopes) {
         propertyModel.setNameLine(name, iLine);
-        boolean inDescription = false;
+        propertyModel.setScope(scopes.match(propertyModel.getNameLine()));
+        StringBuilder description = null;
         int i = 0;
         for (String comment : lstComments) {
             i++;
-            comment = comment.trim();
-            int idxStart = comment.toLowerCase().indexOf("@description");
-            if (idxStart != -1 || i == 1) {
-                if (idxStart != -1 && comment.length() > idxStart + 13)
-                    propertyModel.setDescription(comment.substring(idxStart + 13).trim());
-                else{
-                    Pattern p = Pattern.compile("\\s");
-                    Matcher m = p.matcher(comment);
-                    if (m.find()) {
-                        propertyModel.setDescription(comment.substring(m.start()).trim());
-                    }
-                }
-                inDescription = true;
+            int ich = DocTag.ichText(comment);
+            DocTag tag = DocTag.match(comment, ich);
+            if (tag == DocTag.DESCRIPTION) {
+                description = new StringBuilder(DocTag.value(comment, ich));
                 continue;
             }
+            if (i == 1) {
+                description = new StringBuilder(comment.length());
+            }
 
             // handle multiple lines for description.
-            if (inDescription) {
-                int j;
-                for (j = 0; j < comment.length(); j++) {
-                    char ch = comment.charAt(j);
-                    if (ch != '*' && ch != ' ')
-                        break;
-                }
-                if (j < comment.length()) {
-                    propertyModel.setDescription(propertyModel.getDescription() + ' ' + comment.substring(j));
-                }
-                continue;
+            if (description != null) {
+                appendDescription(description, comment, ich);
             }
         }
+        if (description != null)
+            propertyModel.setDescription(description.toString());
     }
 
-    private static void fillMethodModel(MethodModel mModel, String name, ArrayList<String> lstComments, int iLine) {
+    private static void fillMethodModel(MethodModel mModel, String name, ArrayList<String> lstComments, int iLine,
+                                        ScopeMatcher scopes) {
         mModel.setNameLine(name, iLine);
+        mModel.setScope(scopes.match(mModel.getNameLine()));
+        StringBuilder description = null;
+        StringBuilder example = null;
+        boolean exampleHasText = false;
         boolean inDescription = false;
         boolean inExample = false;
         int i = 0;
         for (String comment : lstComments) {
             i++;
-            comment = comment.trim();
-
-            int idxStart = comment.toLowerCase().indexOf("@author");
-            if (idxStart != -1) {
-                mModel.setAuthor(comment.substring(idxStart + 8).trim());
-                inDescription = false;
-                inExample = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@exception");
-            if (idxStart != -1) {
-                mModel.getExceptionList().add(comment.substring(idxStart + 11).trim());
-                inDescription = false;
-                inExample = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@deprecated");
-            if (idxStart != -1) {
-                mModel.setDeprecated(comment.substring(idxStart + 11).trim());
-                inDescription = false;
-                inExample = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@date");
-            if (idxStart != -1) {
-                mModel.setDate(comment.substring(idxStart + 5).trim());
-                inDescription = false;
-                inExample = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@return");
-            if (idxStart != -1) {
-                mModel.setReturns(comment.substring(idxStart + 7).trim());
-                inDescription = false;
-                inExample = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@param");
-            if (idxStart != -1) {
-                mModel.getParams().add(comment.substring(idxStart + 6).trim());
-                inDescription = false;
-                inExample = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@description");
-            if (idxStart != -1 || i == 1) {
-                if (idxStart != -1 && comment.length() >= idxStart + 12)
-                    mModel.setDescription(comment.substring(idxStart + 12).trim());
-                else{
-                    Pattern p = Pattern.compile("\\s");
-                    Matcher m = p.matcher(comment);
-                    if (m.find()) {
-                        mModel.setDescription(comment.substring(m.start()).trim());
-                    }
-                }
-                inDescription = true;
-                inExample = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@example");
-            if (idxStart != -1 || i == 1) {
-                if (idxStart != -1 && comment.length() >= idxStart + 8) {
-                    mModel.setExample(comment.substring(idxStart + 8).trim());
-                } else {
-                    Pattern p = Pattern.compile("\\s");
-                    Matcher m = p.matcher(comment.substring(8));
-
-                    if (m.find()) {
-                        mModel.setExample(comment.substring(m.start()).trim());
+            int ich = DocTag.ichText(comment);
+            DocTag tag = DocTag.match(comment, ich);
+            switch (tag) {
+                case AUTHOR:
+                    mModel.setAuthor(DocTag.value(comment, ich));
+                    break;
+                case EXCEPTION:
+                    mModel.addException(DocTag.value(comment, ich));
+                    break;
+                case DEPRECATED:
+                    mModel.setDeprecated(DocTag.value(comment, ich));
+                    break;
+                case DATE:
+                    mModel.setDate(DocTag.value(comment, ich));
+                    break;
+                case RETURN:
+                    mModel.setReturns(DocTag.value(comment, ich));
+                    break;
+                case PARAM:
+                    mModel.addParam(DocTag.value(comment, ich));
+                    break;
+                case DESCRIPTION:
+                    description = new StringBuilder(DocTag.value(comment, ich));
+                    inDescription = true;
+                    inExample = false;
+                    continue;
+                case EXAMPLE:
+                    example = new StringBuilder(DocTag.value(comment, ich));
+                    exampleHasText = example.length() > 0;
+                    inDescription = false;
+                    inExample = true;
+                    continue;
+                default:
+                    if (i == 1) {
+                        description = new StringBuilder(comment.length());
+                        inDescription = true;
+                        inExample = false;
                     }
-                }
-                inDescription = false;
-                inExample = true;
-                continue;
-            }
 
-            // handle multiple lines for @description and @example.
-            if (inDescription || inExample) {
-                int j;
-                for (j = 0; j < comment.length(); j++) {
-                    char ch = comment.charAt(j);
-                    if (ch != '*' && ch != ' ')
-                        break;
-                }
-                if (j < comment.length()) {
+                    // handle multiple lines for @description and @example.
                     if (inDescription) {
-                        mModel.setDescription(mModel.getDescription() + ' ' + comment.substring(j));
-                    } else if (inExample) {
-                        // Lets's not include the tag
-                        if (j == 0 && comment.substring(2, 10) == "* @example") {
-                            comment = comment.substring(10);
-                        }
-
-                        mModel.setExample(mModel.getExample()
-                                + (mModel.getExample().trim().length() == 0 ? "" : "\n")
-                                + comment.substring(2));
+                        appendDescription(description, comment, ich);
+                    } else if (inExample && ich < comment.length()) {
+                        // keep the indentation of example code, just drop the leading "* "
+                        int ichCode = comment.charAt(0) == '*' ? 1 : 0;
+                        if (ichCode < comment.length() && comment.charAt(ichCode) == ' ')
+                            ichCode++;
+                        if (exampleHasText)
+                            example.append('\n');
+                        exampleHasText = true;
+                        example.append(comment, ichCode, comment.length());
                     }
-                }
-                continue;
+                    continue;
             }
+            inDescription = false;
+            inExample = false;
         }
+        if (description != null)
+            mModel.setDescription(description.toString());
+        if (example != null)
+            mModel.setExample(example.toString());
     }
 
     private static void fillClassModel(ClassModel cModelParent, ClassModel cModel, String name,
-                                       ArrayList<String> lstComments, int iLine) {
+                                       ArrayList<String> lstComments, int iLine, ScopeMatcher scopes) {
         cModel.setNameLine(name, iLine);
+        cModel.setScope(scopes.match(cModel.getNameLine()));
         if (name.toLowerCase().contains(" interface "))
             cModel.setIsInterface(true);
+        StringBuilder description = null;
         boolean inDescription = false;
         int i = 0;
         for (String comment : lstComments) {
             i++;
-            comment = comment.trim();
-
-            int idxStart = comment.toLowerCase().indexOf("@author");
-            if (idxStart != -1) {
-                cModel.setAuthor(comment.substring(idxStart + 7).trim());
-                inDescription = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@date");
-            if (idxStart != -1) {
-                cModel.setDate(comment.substring(idxStart + 5).trim());
-                inDescription = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@deprecated");
-            if (idxStart != -1) {
-                cModel.setDeprecated(comment.substring(idxStart + 11).trim());
-                inDescription = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@group "); // needed to include space to not match group-content.
-            if (idxStart != -1) {
-                cModel.setClassGroup(comment.substring(idxStart + 6).trim());
-                inDescription = false;
-                continue;
-            }
-
-            idxStart = comment.toLowerCase().indexOf("@group-content");
-            if (idxStart != -1) {
-                cModel.setClassGroupContent(comment.substring(idxStart + 14).trim());
-                inDescription = false;
-                continue;
-            }
+            int ich = DocTag.ichText(comment);
+            DocTag tag = DocTag.match(comment, ich);
+            switch (tag) {
+                case AUTHOR:
+                    cModel.setAuthor(DocTag.value(comment, ich));
+                    break;
+                case DATE:
+                    cModel.setDate(DocTag.value(comment, ich));
+                    break;
+                case DEPRECATED:
+                    cModel.setDeprecated(DocTag.value(comment, ich));
+                    break;
+                case GROUP:
+                    cModel.setClassGroup(DocTag.value(comment, ich));
+                    break;
+                case GROUP_CONTENT:
+                    cModel.setClassGroupContent(DocTag.value(comment, ich));
+                    break;
+                case DESCRIPTION:
+                    description = new StringBuilder(DocTag.value(comment, ich));
+                    inDescription = true;
+                    continue;
+                default:
+                    if (i == 1) {
+                        description = new StringBuilder(comment.length());
+                        inDescription = true;
+                    }
 
-            idxStart = comment.toLowerCase().indexOf("@description");
-            if (idxStart != -1 || i == 1) {
-                if (idxStart != -1 && comment.length() > idxStart + 13)
-                    cModel.setDescription(comment.substring(idxStart + 12).trim());
-                else{
-                    Pattern p = Pattern.compile("\\s");
-                    Matcher m = p.matcher(comment);
-                    if (m.find()) {
-                        cModel.setDescription(comment.substring(m.start()).trim());
+                    // handle multiple lines for description.
+                    if (inDescription) {
+                        appendDescription(description, comment, ich);
                     }
-                }
-                inDescription = true;
-                continue;
+                    continue;
             }
+            inDescription = false;
+        }
+        if (description != null)
+            cModel.setDescription(description.toString());
+    }
 
-            // handle multiple lines for description.
-            if (inDescription) {
-                int j;
-                for (j = 0; j < comment.length(); j++) {
-                    char ch = comment.charAt(j);
-                    if (ch != '*' && ch != ' ')
-                        break;
-                }
-                if (j < comment.length()) {
-                    cModel.setDescription(cModel.getDescription() + ' ' + comment.substring(j));
-                }
-                continue;
-            }
+    // adds the text of a doc comment line to a description, separated by a space.
+    private static void appendDescription(StringBuilder description, String comment, int ich) {
+        if (ich < comment.length()) {
+            if (description.length() > 0)
+                description.append(' ');
+            description.append(comment, ich, comment.length());
         }
     }
 
@@ -631,22 +592,6 @@ public class ApexDoc {
             return str.substring(iStart, iEnd);
     }
 
-    /*************************************************************************
-     * @description Count the number of occurrences of character in the string
-     * @param str
-     * @param ch
-     * @return int
-     */
-    private static int countChars(String str, char ch) {
-        int count = 0;
-        for (int i = 0; i < str.length(); ++i) {
-            if (str.charAt(i) == ch) {
-                ++count;
-            }
-        }
-        return count;
-    }
-
     /*
      * private static void debug(ClassModel cModel){ try{
      * System.out.println("Class::::::::::::::::::::::::");
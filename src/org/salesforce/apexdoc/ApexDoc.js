@@ -3,13 +3,22 @@
     
     // document ready function
     $(function () {  
+    	// a shared class menu is loaded into the sidebar before the scopes are applied to it
+    	var nav = $('#apexdocnav');
+    	if (nav.length > 0) {
+    		nav.load(nav.attr('data-src'), initScopes);
+    	} else {
+    		initScopes();
+    	}
+    });
+    
+    function initScopes() {
     	readScopeCookie();
     	
     	hideAllScopes();
     	
     	showScopes();
-    	      		
-    });
+    }
     
     function expandListToClass(liClass) {
         var cl = $('#mynavbar').collapsibleList('.header', {search: false, animate: false});
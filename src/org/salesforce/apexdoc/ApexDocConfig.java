@@ -0,0 +1,391 @@
+package org.salesforce.apexdoc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*************************************************************************
+ * @description the settings for one documentation run: where the class files
+ *              are, where the documentation goes, and how it is generated.
+ *              A config can't be changed once built, so one config can be
+ *              shared by any number of runs and threads. Build one with
+ *              fromArgs(), from command line parameters, or with a Builder.
+ */
+public final class ApexDocConfig {
+
+    private final String sourceDirectory;
+    private final String targetDirectory;
+    private final String hostedSourceURL;
+    private final String homeFilePath;
+    private final String authorFilePath;
+    private final ScopeMatcher scopes;
+    private final boolean recursive;
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final boolean markdown;
+    private final int threads;
+    private final int writers;
+    private final boolean useCache;
+    private final boolean incremental;
+    private final boolean watch;
+    private final int streamCapacity;
+    private final boolean sharedNav;
+    private final int servePort;
+    private final int pageCacheMegabytes;
+    private final int serveThreads;
+    private final String statsFile;
+
+    private ApexDocConfig(Builder builder) {
+        this.sourceDirectory = builder.sourceDirectory;
+        this.targetDirectory = builder.targetDirectory;
+        this.hostedSourceURL = builder.hostedSourceURL;
+        this.homeFilePath = builder.homeFilePath;
+        this.authorFilePath = builder.authorFilePath;
+        // default scope to global and public if not specified
+        if (builder.scopes == null || builder.scopes.size() == 0)
+            this.scopes = new ScopeMatcher(new String[] { "global", "public", "webService" });
+        else
+            this.scopes = builder.scopes;
+        this.recursive = builder.recursive;
+        this.includes = Collections.unmodifiableList(new ArrayList<String>(builder.includes));
+        this.excludes = Collections.unmodifiableList(new ArrayList<String>(builder.excludes));
+        this.markdown = builder.markdown;
+        this.threads = builder.threads;
+        this.writers = builder.writers;
+        this.useCache = builder.useCache;
+        // watching only pays off if unchanged pages are left alone
+        this.incremental = builder.incremental || builder.watch;
+        this.watch = builder.watch;
+        this.streamCapacity = builder.streamCapacity;
+        this.sharedNav = builder.sharedNav;
+        this.servePort = builder.servePort;
+        this.pageCacheMegabytes = builder.pageCacheMegabytes;
+        this.serveThreads = builder.serveThreads;
+        this.statsFile = builder.statsFile;
+    }
+
+    /*************************************************************************
+     * @description builds a config from command line parameters.
+     * @param args
+     * @return ApexDocConfig
+     * @throws IllegalArgumentException
+     *             if a parameter isn't recognized, a parameter that takes a
+     *             value is the last one, or a count isn't a number or is too
+     *             small
+     */
+    public static ApexDocConfig fromArgs(String[] args) {
+        Builder builder = new Builder();
+        for (int i = 0; i < args.length; i++) {
+
+            if (args[i] == null) {
+                continue;
+            } else if (args[i].equalsIgnoreCase("-s")) {
+                builder.setSourceDirectory(value(args, ++i));
+            } else if (args[i].equalsIgnoreCase("-g")) {
+                builder.setHostedSourceURL(value(args, ++i));
+            } else if (args[i].equalsIgnoreCase("-t")) {
+                builder.setTargetDirectory(value(args, ++i));
+            } else if (args[i].equalsIgnoreCase("-h")) {
+                builder.setHomeFilePath(value(args, ++i));
+            } else if (args[i].equalsIgnoreCase("-a")) {
+                builder.setAuthorFilePath(value(args, ++i));
+            } else if (args[i].equalsIgnoreCase("-p")) {
+                builder.setScopes(ScopeMatcher.parse(value(args, ++i)));
+            } else if (args[i].equalsIgnoreCase("-recursive")) {
+                builder.setRecursive(true);
+            } else if (args[i].equalsIgnoreCase("-include")) {
+                builder.addIncludes(value(args, ++i));
+            } else if (args[i].equalsIgnoreCase("-exclude")) {
+                builder.addExcludes(value(args, ++i));
+            } else if (args[i].equalsIgnoreCase("-md")) {
+                builder.setMarkdown(true);
+            } else if (args[i].equalsIgnoreCase("-threads")) {
+                builder.setThreads(count(args, ++i, 1));
+            } else if (args[i].equalsIgnoreCase("-writers")) {
+                builder.setWriters(count(args, ++i, 1));
+            } else if (args[i].equalsIgnoreCase("-cache")) {
+                builder.setUseCache(true);
+            } else if (args[i].equalsIgnoreCase("-incremental")) {
+                builder.setIncremental(true);
+            } else if (args[i].equalsIgnoreCase("-watch")) {
+                builder.setWatch(true);
+            } else if (args[i].equalsIgnoreCase("-sharednav")) {
+                builder.setSharedNav(true);
+            } else if (args[i].equalsIgnoreCase("-stream")) {
+                builder.setStreamCapacity(Integer.parseInt(value(args, ++i)));
+            } else if (args[i].equalsIgnoreCase("-serve")) {
+                builder.setServePort(Integer.parseInt(value(args, ++i)));
+            } else if (args[i].equalsIgnoreCase("-pagecache")) {
+                builder.setPageCacheMegabytes(Integer.parseInt(value(args, ++i)));
+            } else if (args[i].equalsIgnoreCase("-servethreads")) {
+                builder.setServeThreads(count(args, ++i, 1));
+            } else if (args[i].equalsIgnoreCase("-stats")) {
+                builder.setStatsFile(value(args, ++i));
+            } else {
+                throw new IllegalArgumentException("Unknown parameter: " + args[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    // the value of the parameter before args[i]
+    private static String value(String[] args, int i) {
+        if (i >= args.length)
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        return args[i];
+    }
+
+    // the value of the parameter before args[i], a count of at least min
+    private static int count(String[] args, int i, int min) {
+        int count = Integer.parseInt(value(args, i));
+        if (count < min)
+            throw new IllegalArgumentException(args[i - 1] + " must be at least " + min + ": " + count);
+        return count;
+    }
+
+    public String getSourceDirectory() {
+        return sourceDirectory;
+    }
+
+    public String getTargetDirectory() {
+        return targetDirectory;
+    }
+
+    public String getHostedSourceURL() {
+        return hostedSourceURL;
+    }
+
+    public String getHomeFilePath() {
+        return homeFilePath;
+    }
+
+    public String getAuthorFilePath() {
+        return authorFilePath;
+    }
+
+    public ScopeMatcher getScopes() {
+        return scopes;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    // globs of the class files to document, or empty for all of them
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    // globs of the class files and folders to leave out
+    public List<String> getExcludes() {
+        return excludes;
+    }
+
+    public boolean isMarkdown() {
+        return markdown;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getWriters() {
+        return writers;
+    }
+
+    public boolean isUseCache() {
+        return useCache;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public boolean isWatch() {
+        return watch;
+    }
+
+    public int getStreamCapacity() {
+        return streamCapacity;
+    }
+
+    public boolean isSharedNav() {
+        return sharedNav;
+    }
+
+    // the port to serve the documentation on, or -1 to write it instead
+    public int getServePort() {
+        return servePort;
+    }
+
+    public int getPageCacheMegabytes() {
+        return pageCacheMegabytes;
+    }
+
+    // the threads -serve answers requests on. 0, the default, is as many as the
+    // machine has processors, or -threads if that is more: a browser asks for a
+    // page and its assets at once, and a slow page shouldn't hold up the rest
+    public int getServeThreads() {
+        return serveThreads;
+    }
+
+    // the file the per file report is written to, .csv or .json, or empty for none
+    public String getStatsFile() {
+        return statsFile;
+    }
+
+    /*************************************************************************
+     * @description collects the settings for an ApexDocConfig. Anything not
+     *              set keeps the same default as the command line.
+     */
+    public static class Builder {
+        private String sourceDirectory = "";
+        private String targetDirectory = "";
+        private String hostedSourceURL = "";
+        private String homeFilePath = "";
+        private String authorFilePath = "";
+        private ScopeMatcher scopes;
+        private boolean recursive;
+        private final List<String> includes = new ArrayList<String>();
+        private final List<String> excludes = new ArrayList<String>();
+        private boolean markdown;
+        private int threads = 1;
+        private int writers = 4;
+        private boolean useCache;
+        private boolean incremental;
+        private boolean watch;
+        private int streamCapacity;
+        private boolean sharedNav;
+        private int servePort = -1;
+        private int pageCacheMegabytes = 64;
+        private int serveThreads;
+        private String statsFile = "";
+
+        public Builder setSourceDirectory(String sourceDirectory) {
+            this.sourceDirectory = sourceDirectory;
+            return this;
+        }
+
+        public Builder setTargetDirectory(String targetDirectory) {
+            this.targetDirectory = targetDirectory;
+            return this;
+        }
+
+        public Builder setHostedSourceURL(String hostedSourceURL) {
+            this.hostedSourceURL = hostedSourceURL;
+            return this;
+        }
+
+        public Builder setHomeFilePath(String homeFilePath) {
+            this.homeFilePath = homeFilePath;
+            return this;
+        }
+
+        public Builder setAuthorFilePath(String authorFilePath) {
+            this.authorFilePath = authorFilePath;
+            return this;
+        }
+
+        public Builder setScopes(ScopeMatcher scopes) {
+            this.scopes = scopes;
+            return this;
+        }
+
+        public Builder setRecursive(boolean recursive) {
+            this.recursive = recursive;
+            return this;
+        }
+
+        /*************************************************************************
+         * @param globs
+         *            - semicolon separated globs of class files to document
+         * @return Builder
+         */
+        public Builder addIncludes(String globs) {
+            addGlobs(includes, globs);
+            return this;
+        }
+
+        /*************************************************************************
+         * @param globs
+         *            - semicolon separated globs of class files and folders
+         *            to leave out
+         * @return Builder
+         */
+        public Builder addExcludes(String globs) {
+            addGlobs(excludes, globs);
+            return this;
+        }
+
+        private static void addGlobs(List<String> list, String globs) {
+            for (String glob : globs.split(";")) {
+                if (glob.trim().length() > 0)
+                    list.add(glob.trim());
+            }
+        }
+
+        public Builder setMarkdown(boolean markdown) {
+            this.markdown = markdown;
+            return this;
+        }
+
+        public Builder setThreads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder setWriters(int writers) {
+            this.writers = writers;
+            return this;
+        }
+
+        public Builder setUseCache(boolean useCache) {
+            this.useCache = useCache;
+            return this;
+        }
+
+        public Builder setIncremental(boolean incremental) {
+            this.incremental = incremental;
+            return this;
+        }
+
+        public Builder setWatch(boolean watch) {
+            this.watch = watch;
+            return this;
+        }
+
+        public Builder setStreamCapacity(int streamCapacity) {
+            this.streamCapacity = streamCapacity;
+            return this;
+        }
+
+        public Builder setSharedNav(boolean sharedNav) {
+            this.sharedNav = sharedNav;
+            return this;
+        }
+
+        public Builder setServePort(int servePort) {
+            this.servePort = servePort;
+            return this;
+        }
+
+        public Builder setPageCacheMegabytes(int pageCacheMegabytes) {
+            this.pageCacheMegabytes = pageCacheMegabytes;
+            return this;
+        }
+
+        public Builder setServeThreads(int serveThreads) {
+            this.serveThreads = serveThreads;
+            return this;
+        }
+
+        public Builder setStatsFile(String statsFile) {
+            this.statsFile = statsFile;
+            return this;
+        }
+
+        public ApexDocConfig build() {
+            return new ApexDocConfig(this);
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package org.salesforce.apexdoc;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/*************************************************************************
+ * @description keeps ApexDoc running in the background, so tools that run it
+ *              many times, like commit hooks and editors, don't pay for
+ *              starting Java and warming up the parser on every run. The
+ *              daemon listens on a port of the loopback address only, and
+ *              only runs for clients that can read its token, which it writes
+ *              at startup to a file in the home folder only its user can
+ *              read. A client sends -token and the token, then -cwd and its
+ *              working folder, then the same parameters as the command line,
+ *              one per line, ending with an empty line. Relative paths in
+ *              the parameters are resolved against the client's folder,
+ *              which is also the default source and target folder. The
+ *              daemon generates the
+ *              documentation on its engine, sends back what the run printed,
+ *              and ends with a line starting with STATUS_DONE or
+ *              STATUS_FAILED. Parsed classes are kept in memory, so only the
+ *              class files changed since the last run are parsed again.
+ *              Clients are served at the same time, one thread each. A
+ *              client that disconnects before its run is done cancels it,
+ *              once the run's output can't be sent to it.
+ */
+public class ApexDocDaemon {
+
+    public static final String STATUS_DONE = "ApexDoc daemon: done";
+    public static final String STATUS_FAILED = "ApexDoc daemon: failed";
+
+    // the parameters whose values are paths, resolved against the client's folder
+    private static final List<String> PATH_PARAMS = Arrays.asList("-s", "-t", "-h", "-a", "-stats");
+
+    private final ApexDocEngine engine;
+    private final ServerSocket serverSocket;
+    private final ExecutorService clients;
+    private final File tokenFile;
+    private final byte[] token;
+
+    // what each client thread prints goes back to its client, and everything else to the console
+    private static final ThreadLocal<OutputStream> clientOutput = new ThreadLocal<OutputStream>();
+
+    /*************************************************************************
+     * @param port
+     *            - the port to listen on, 0 for any free port
+     * @param engine
+     *            - the engine the documentation is generated on
+     * @throws IOException
+     *             if the port can't be opened
+     */
+    public ApexDocDaemon(int port, ApexDocEngine engine) throws IOException {
+        this(port, engine, new File(System.getProperty("user.home")));
+    }
+
+    /*************************************************************************
+     * @param port
+     *            - the port to listen on, 0 for any free port
+     * @param engine
+     *            - the engine the documentation is generated on
+     * @param tokenDirectory
+     *            - the folder the token file is written to
+     * @throws IOException
+     *             if the port can't be opened, or the token file written
+     */
+    public ApexDocDaemon(int port, ApexDocEngine engine, File tokenDirectory) throws IOException {
+        this.engine = engine;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        byte[] rgb = new byte[16];
+        new SecureRandom().nextBytes(rgb);
+        StringBuilder sb = new StringBuilder();
+        for (byte b : rgb)
+            sb.append(String.format("%02x", b & 0xff));
+        this.token = sb.toString().getBytes(StandardCharsets.UTF_8);
+        this.tokenFile = tokenFile(tokenDirectory, getPort());
+        try {
+            writeToken(tokenFile.toPath(), token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        this.clients = Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ApexDoc daemon client");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /*************************************************************************
+     * @param tokenDirectory
+     * @param port
+     * @return the file the token of the daemon on a port is written to
+     */
+    public static File tokenFile(File tokenDirectory, int port) {
+        return new File(tokenDirectory, ".apexdoc-daemon-" + port);
+    }
+
+    // writes the token to a file only this user can read, replacing one left by a daemon that didn't stop cleanly
+    private static void writeToken(Path path, byte[] token) throws IOException {
+        Files.deleteIfExists(path);
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system, so the home folder's own permissions protect it
+            Files.createFile(path);
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("another daemon is starting on the same port: " + path, e);
+        }
+        Files.write(path, token);
+    }
+
+    /*************************************************************************
+     * @description serves clients until close() is called.
+     * @throws IOException
+     */
+    public void serve() throws IOException {
+        final PrintStream console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                target().write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                target().write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                target().flush();
+            }
+
+            private OutputStream target() {
+                OutputStream out = clientOutput.get();
+                return out != null ? out : console;
+            }
+        }, true, "UTF-8"));
+
+        System.out.println("ApexDoc daemon is listening on port " + getPort() + ".");
+        try {
+            while (true) {
+                final Socket socket = serverSocket.accept();
+                clients.execute(new Runnable() {
+                    public void run() {
+                        serveClient(socket);
+                    }
+                });
+            }
+        } catch (SocketException e) {
+            // closed
+        } catch (IOException e) {
+            System.out.println("ApexDoc daemon stopped: " + e.getMessage());
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    /*************************************************************************
+     * @description stops listening. Runs in progress finish on their own.
+     */
+    public void close() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        tokenFile.delete();
+        clients.shutdown();
+    }
+
+    private void serveClient(Socket socket) {
+        try {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            ArrayList<String> args = new ArrayList<String>();
+            String line;
+            while ((line = in.readLine()) != null && line.length() > 0)
+                args.add(line);
+
+            final ClientOutputStream clientOut = new ClientOutputStream(socket.getOutputStream());
+            OutputStream out = new BufferedOutputStream(clientOut);
+            clientOutput.set(out);
+            IProgressMonitor monitor = new IProgressMonitor() {
+                @Override
+                public boolean isCanceled() {
+                    return clientOut.failed;
+                }
+            };
+            long start = System.currentTimeMillis();
+            String status;
+            try {
+                if (!checkToken(args))
+                    throw new SecurityException("the daemon's token is missing or wrong");
+                args = resolvePaths(args);
+                ApexDocConfig config = ApexDocConfig.fromArgs(args.toArray(new String[args.size()]));
+                if (config.isWatch())
+                    throw new IllegalArgumentException("-watch can't be used with the daemon");
+                int cClasses = engine.generate(config, monitor).size();
+                System.out.println("ApexDoc has completed!");
+                status = STATUS_DONE + ", " + cClasses + " classes in " + (System.currentTimeMillis() - start) +
+                        " ms.";
+            } catch (Exception e) {
+                status = STATUS_FAILED + ": " + e;
+            }
+            System.out.println(status);
+            System.out.flush();
+            clientOutput.remove();
+            System.out.println(status + " (" + args + ")");
+        } catch (IOException e) {
+            clientOutput.remove();
+            System.out.println("ApexDoc daemon lost a client: " + e.getMessage());
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    // checks the token the request starts with, and removes it from the parameters
+    private boolean checkToken(ArrayList<String> args) {
+        if (args.size() < 2 || !args.get(0).equals("-token"))
+            return false;
+        byte[] tokenSent = args.get(1).getBytes(StandardCharsets.UTF_8);
+        args.subList(0, 2).clear();
+        return MessageDigest.isEqual(token, tokenSent);
+    }
+
+    /*************************************************************************
+     * @description resolves the paths in a client's parameters against the
+     *              folder it sent with -cwd, which is also the default source
+     *              and target folder. Without -cwd, the parameters are left
+     *              as they are, and resolved against the daemon's folder.
+     * @param args
+     * @return the parameters to run
+     */
+    static ArrayList<String> resolvePaths(List<String> args) {
+        ArrayList<String> resolved = new ArrayList<String>(args.size() + 4);
+        if (args.size() < 2 || !args.get(0).equals("-cwd")) {
+            resolved.addAll(args);
+            return resolved;
+        }
+        File cwd = new File(args.get(1));
+        resolved.add("-s");
+        resolved.add(cwd.getPath());
+        resolved.add("-t");
+        resolved.add(cwd.getPath());
+        for (int i = 2; i < args.size(); i++) {
+            String arg = args.get(i);
+            resolved.add(arg);
+            if (PATH_PARAMS.contains(arg.toLowerCase()) && i + 1 < args.size()) {
+                String path = args.get(++i);
+                // an empty -h, -a or -stats means none, but an empty folder means the client's
+                boolean isFolder = arg.equalsIgnoreCase("-s") || arg.equalsIgnoreCase("-t");
+                if (!new File(path).isAbsolute() && (path.length() > 0 || isFolder))
+                    path = new File(cwd, path).getPath();
+                resolved.add(path);
+            }
+        }
+        return resolved;
+    }
+
+    // the output to a client, which notes when the client can't be written to, as it has gone
+    private static class ClientOutputStream extends FilterOutputStream {
+        volatile boolean failed;
+
+        ClientOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+    }
+
+    /*************************************************************************
+     * @description runs ApexDoc on a daemon: sends it the token from the
+     *              daemon's token file in the home folder, this process's
+     *              working folder and the parameters, and prints what it
+     *              sends back.
+     * @param port
+     * @param args
+     *            - the command line parameters for the run
+     * @return true if the run succeeded
+     * @throws IOException
+     *             if the daemon can't be reached, or its token read
+     */
+    public static boolean runClient(int port, String[] args) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        try {
+            File tokenFile = tokenFile(new File(System.getProperty("user.home")), port);
+            String token = new String(Files.readAllBytes(tokenFile.toPath()), StandardCharsets.UTF_8).trim();
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            out.write("-token\n" + token + "\n");
+            out.write("-cwd\n" + new File("").getAbsolutePath() + "\n");
+            for (String arg : args) {
+                if (arg != null && arg.length() > 0)
+                    out.write(arg + "\n");
+            }
+            out.write("\n");
+            out.flush();
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            String line;
+            String last = null;
+            while ((line = in.readLine()) != null) {
+                System.out.println(line);
+                last = line;
+            }
+            return last != null && last.startsWith(STATUS_DONE);
+        } finally {
+            socket.close();
+        }
+    }
+}
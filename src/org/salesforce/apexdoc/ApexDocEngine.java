@@ -0,0 +1,634 @@
+package org.salesforce.apexdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*************************************************************************
+ * @description runs documentation generations. An engine owns the thread
+ *              pools, one for parsing and rendering and one for writing
+ *              pages, and keeps them between runs, so a long running service
+ *              can create one engine and call generate() for many
+ *              repositories, from as many threads as it likes. Each run keeps
+ *              its state to itself; runs only need different target
+ *              directories. close() stops the pools.
+ */
+public class ApexDocEngine {
+
+    private static final String TASK_NAME = "ApexDoc - documenting your Apex Class files.";
+
+    private final int threads;
+    private final int writers;
+    // null when parsing and rendering are done on the calling thread
+    private final ForkJoinPool workPool;
+    private final ExecutorService writerPool;
+    // null when every run parses its class files again
+    private final ModelMemory models;
+
+    /*************************************************************************
+     * @param threads
+     *            - number of threads to parse and render with, 1 to do it on
+     *            the thread calling generate()
+     * @param writers
+     *            - number of threads writing pages
+     */
+    public ApexDocEngine(int threads, int writers) {
+        this(threads, writers, 0);
+    }
+
+    /*************************************************************************
+     * @param threads
+     *            - number of threads to parse and render with, 1 to do it on
+     *            the thread calling generate()
+     * @param writers
+     *            - number of threads writing pages
+     * @param maxModels
+     *            - number of parsed classes kept in memory for later runs, 0
+     *            to keep none
+     */
+    public ApexDocEngine(int threads, int writers, int maxModels) {
+        this.models = maxModels > 0 ? new ModelMemory(maxModels) : null;
+        this.threads = Math.max(1, threads);
+        this.writers = Math.max(1, writers);
+        this.workPool = this.threads > 1 ? new ForkJoinPool(this.threads) : null;
+        this.writerPool = Executors.newFixedThreadPool(this.writers, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ApexDoc output writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /*************************************************************************
+     * @description creates an engine sized by a config's -threads and
+     *              -writers.
+     * @param config
+     */
+    public ApexDocEngine(ApexDocConfig config) {
+        this(config.getThreads(), config.getWriters());
+    }
+
+    /*************************************************************************
+     * @description generates the documentation for a config.
+     * @param config
+     * @param monitor
+     *            - may be null
+     * @return the class model of each class file, in file order
+     * @throws CancellationException
+     *             if the monitor canceled the run
+     */
+    public LinkedHashMap<File, ClassModel> generate(ApexDocConfig config, IProgressMonitor monitor) {
+        RunProgress progress = new RunProgress(monitor);
+        try {
+            FileManager fm = newFileManager(config, config.getTargetDirectory());
+            LinkedHashMap<File, ClassModel> mapFileToModel = parse(fm, config, progress, true);
+
+            if (config.isMarkdown())
+                System.out.println("gonna create some markdown now!");
+
+            generate(fm, config, new ArrayList<ClassModel>(mapFileToModel.values()));
+            fm.timer.print();
+            writeStats(fm, config);
+            return mapFileToModel;
+        } finally {
+            progress.done();
+        }
+    }
+
+    /*************************************************************************
+     * @description parses the class files of a config, and starts serving
+     *              their documentation over HTTP on the config's port. Pages
+     *              are rendered as they are asked for, and the most recently
+     *              served are kept, up to the config's page cache size.
+     *              Requests are answered on the config's serve threads, not
+     *              the engine's parse and render threads. The
+     *              server keeps running until it is stopped, even if the
+     *              engine is closed.
+     * @param config
+     * @param monitor
+     *            - may be null
+     * @return the running server
+     * @throws IOException
+     *             if the port can't be opened
+     * @throws CancellationException
+     *             if the monitor canceled the run while the class files
+     *             were parsed
+     */
+    public ApexDocServer serve(ApexDocConfig config, IProgressMonitor monitor) throws IOException {
+        RunProgress progress = new RunProgress(monitor);
+        try {
+            FileManager fm = newFileManager(config, config.getTargetDirectory());
+            ArrayList<ClassModel> cModels = new ArrayList<ClassModel>(parse(fm, config, progress, false).values());
+            FileManager.Site site = fm.openSite(createMapGroupNameToClassGroup(fm.timer, cModels,
+                    config.getSourceDirectory()), cModels, fm.parseHTMLFile(config.getAuthorFilePath()),
+                    fm.parseHTMLFile(config.getHomeFilePath()), config.getHostedSourceURL());
+            int serveThreads = config.getServeThreads() > 0 ? config.getServeThreads() :
+                    Math.max(threads, Runtime.getRuntime().availableProcessors());
+            ApexDocServer server = new ApexDocServer(config.getServePort(), site,
+                    config.getPageCacheMegabytes() * 1024L * 1024L, serveThreads);
+            server.start();
+            fm.timer.print();
+            writeStats(fm, config);
+            return server;
+        } finally {
+            progress.done();
+        }
+    }
+
+    // finds the class files of a config and parses them, creating a class model for each.
+    // the progress counts the pages too, when they are going to be written.
+    private LinkedHashMap<File, ClassModel> parse(FileManager fm, ApexDocConfig config, RunProgress progress,
+                                                  boolean writing) {
+        // find all the class files to parse
+        fm.timer.start(PhaseTimer.Phase.DISCOVERY);
+        ArrayList<File> files = newScanner(config).find(workPool);
+        fm.timer.stop(PhaseTimer.Phase.DISCOVERY, files.size());
+        LinkedHashMap<File, ClassModel> mapFileToModel;
+
+        // each class file is parsed, and its page rendered and written, as is the home page,
+        // plus we add 2 for the author file and home file loading. FileManager corrects the
+        // total once it knows which pages there are.
+        progress.beginTask(TASK_NAME, writing ? files.size() * 3 + 4 : files.size());
+        fm.setProgress(progress);
+        // reuse the models of unchanged files from the previous run
+        ModelCache cache = null;
+        if (config.isUseCache())
+            cache = ModelCache.load(config.getTargetDirectory(), config.getScopes());
+
+        // parse each file, creating a class model for it
+        AtomicInteger cKept = new AtomicInteger();
+        fm.timer.start(PhaseTimer.Phase.PARSE);
+        if (workPool != null)
+            mapFileToModel = parseFilesParallel(files, config.getScopes(), cache, cKept, fm.stats, progress);
+        else
+            mapFileToModel = parseFiles(files, config.getScopes(), cache, cKept, fm.stats, progress);
+        fm.timer.stop(PhaseTimer.Phase.PARSE, files.size());
+
+        if (models != null)
+            System.out.println("ApexDoc memory: " + cKept.get() + " classes reused, " +
+                    (mapFileToModel.size() - cKept.get()) + " parsed.");
+
+        if (cache != null) {
+            cache.save();
+            System.out.println("ApexDoc cache: " + cache.getHits() + " classes reused, " + cache.getMisses() +
+                    " parsed.");
+        }
+        return mapFileToModel;
+    }
+
+    /*************************************************************************
+     * @description generates the documentation for sources held in memory,
+     *              and passes each page to a sink, without using the file
+     *              system. The sources whose names end in .cls are parsed, in
+     *              the map's order. The config's home and banner files, and
+     *              the classes' @group-content files, are looked up in the
+     *              sources by name. The config's folders, and its -cache,
+     *              -incremental and -watch settings, don't apply.
+     * @param sources
+     *            - the contents of each source, by name
+     * @param config
+     * @param sink
+     *            - receives the pages
+     * @param monitor
+     *            - may be null
+     * @return the class model of each class, in the order of the sources
+     * @throws CancellationException
+     *             if the monitor canceled the run
+     */
+    public LinkedHashMap<String, ClassModel> generate(Map<String, ? extends CharSequence> sources,
+                                                      ApexDocConfig config, PageSink sink,
+                                                      IProgressMonitor monitor) {
+        RunProgress progress = new RunProgress(monitor);
+        try {
+            return generate(sources, config, sink, progress);
+        } finally {
+            progress.done();
+        }
+    }
+
+    private LinkedHashMap<String, ClassModel> generate(Map<String, ? extends CharSequence> sources,
+                                                       ApexDocConfig config, PageSink sink, RunProgress progress) {
+        FileManager fm = newFileManager(config, null);
+        fm.setPageSink(sink);
+        fm.setSources(sources);
+
+        int cClassFiles = 0;
+        for (String name : sources.keySet()) {
+            if (name.endsWith(".cls"))
+                cClassFiles++;
+        }
+        progress.beginTask(TASK_NAME, cClassFiles * 3 + 4);
+        fm.setProgress(progress);
+        fm.timer.start(PhaseTimer.Phase.PARSE);
+        LinkedHashMap<String, ClassModel> mapNameToModel = parseSources(sources, config.getScopes(), fm.stats,
+                progress);
+        fm.timer.stop(PhaseTimer.Phase.PARSE, mapNameToModel.size());
+
+        ArrayList<ClassModel> cModels = new ArrayList<ClassModel>(mapNameToModel.values());
+        String projectDetail = fm.parseHTMLFile(config.getAuthorFilePath());
+        progress.worked(1);
+        String homeContents = fm.parseHTMLFile(config.getHomeFilePath());
+        progress.worked(1);
+        fm.createDoc(createMapGroupNameToClassGroup(fm.timer, cModels, null), cModels, projectDetail, homeContents,
+                config.getHostedSourceURL(), null);
+        fm.timer.print();
+        writeStats(fm, config);
+        return mapNameToModel;
+    }
+
+    /*************************************************************************
+     * @description reads sources for an in-memory run, and closes their
+     *              readers.
+     * @param readers
+     *            - a reader for each source, by name
+     * @return the contents of each source, by name, in the same order
+     * @throws IOException
+     */
+    public static LinkedHashMap<String, String> readSources(Map<String, ? extends Reader> readers)
+            throws IOException {
+        LinkedHashMap<String, String> sources = new LinkedHashMap<String, String>();
+        char[] buf = new char[8192];
+        for (Map.Entry<String, ? extends Reader> entry : readers.entrySet()) {
+            Reader reader = entry.getValue();
+            try {
+                StringBuilder contents = new StringBuilder();
+                int cch;
+                while ((cch = reader.read(buf)) != -1)
+                    contents.append(buf, 0, cch);
+                sources.put(entry.getKey(), contents.toString());
+            } finally {
+                reader.close();
+            }
+        }
+        return sources;
+    }
+
+    /*************************************************************************
+     * @description keeps running after the documentation is created, and
+     *              regenerates it whenever class files in the source folder
+     *              change. Other files, such as the pages and manifest it
+     *              writes into a target folder within the source folder,
+     *              don't count. only the changed class files are parsed
+     *              again, and since the output is incremental, only their
+     *              pages are rewritten, unless the menu changed too. runs
+     *              until the thread is interrupted.
+     * @param config
+     * @param mapFileToModel
+     *            the class model of every class file, from generate(),
+     *            updated in place and keyed by absolute file
+     */
+    public void watch(ApexDocConfig config, LinkedHashMap<File, ClassModel> mapFileToModel) {
+        String sourceDirectory = config.getSourceDirectory();
+        try {
+            SourceScanner scanner = newScanner(config);
+            SourceWatcher watcher = new SourceWatcher(scanner, config.isRecursive(), config.getTargetDirectory());
+            // the map is keyed by absolute files from here on, however the source folder was given,
+            // so a changed file replaces its model rather than being added twice
+            LinkedHashMap<File, ClassModel> mapFound = new LinkedHashMap<File, ClassModel>(mapFileToModel);
+            mapFileToModel.clear();
+            for (Map.Entry<File, ClassModel> entry : mapFound.entrySet())
+                mapFileToModel.put(entry.getKey().getAbsoluteFile(), entry.getValue());
+            System.out.println("ApexDoc is watching " + sourceDirectory + " for changes...");
+            while (true)
+                regenerate(config, scanner, watcher.awaitChanges(), mapFileToModel);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("ApexDoc can't watch " + sourceDirectory + ": " + e.getMessage());
+        }
+    }
+
+    /*************************************************************************
+     * @description parses the changed class files again, and regenerates the
+     *              documentation incrementally, for one round of -watch.
+     * @param config
+     * @param scanner
+     *            - decides which files are documented
+     * @param changed
+     *            - the changed class files, or null to start over from the
+     *            source folder's contents
+     * @param mapFileToModel
+     *            - the class model of every class file, keyed by absolute
+     *            file, updated in place
+     */
+    void regenerate(ApexDocConfig config, SourceScanner scanner, LinkedHashSet<File> changed,
+                    LinkedHashMap<File, ClassModel> mapFileToModel) {
+        long start = System.currentTimeMillis();
+
+        FileManager fm = newFileManager(config, config.getTargetDirectory());
+        fm.setStats(null);
+        if (changed == null) {
+            // events were lost, so start over from the folder's contents
+            mapFileToModel.clear();
+            changed = new LinkedHashSet<File>(scanner.find(workPool));
+        }
+        for (File file : changed) {
+            if (!scanner.accept(file.toPath()))
+                continue;
+            File key = file.getAbsoluteFile();
+            ClassModel cModel = key.isFile() ?
+                    ApexDoc.parseFileContents(key.getPath(), config.getScopes()) : null;
+            if (cModel != null)
+                mapFileToModel.put(key, cModel);
+            else
+                mapFileToModel.remove(key);
+        }
+
+        fm.setIncremental(true);
+        generate(fm, config, new ArrayList<ClassModel>(mapFileToModel.values()));
+        System.out.println("ApexDoc regenerated " + changed.size() + " changed files in " +
+                (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    /*************************************************************************
+     * @description stops the engine's threads. Runs in progress are not
+     *              waited for.
+     */
+    public void close() {
+        if (workPool != null)
+            workPool.shutdownNow();
+        writerPool.shutdownNow();
+    }
+
+    private static SourceScanner newScanner(ApexDocConfig config) {
+        return new SourceScanner(config.getSourceDirectory(), config.isRecursive(), config.getIncludes(),
+                config.getExcludes());
+    }
+
+    // a FileManager for one run, set up from the config and sharing the engine's pools. an in-memory
+    // run has no target directory, so it has no writers and is never incremental.
+    private FileManager newFileManager(ApexDocConfig config, String targetDirectory) {
+        FileManager fm = new FileManager(targetDirectory, config.getScopes());
+        if (config.isMarkdown())
+            fm.setoutputFormat(OutputType.MARKDOWN);
+        fm.setStreamCapacity(config.getStreamCapacity());
+        fm.setSharedNav(config.isSharedNav());
+        fm.setRenderPool(workPool);
+        if (targetDirectory != null) {
+            fm.setIncremental(config.isIncremental());
+            fm.setWriterPool(writerPool, writers);
+        }
+        if (config.getStatsFile().length() > 0)
+            fm.setStats(new RunStats());
+        return fm;
+    }
+
+    // writes the -stats report of a run, if it has one
+    private static void writeStats(FileManager fm, ApexDocConfig config) {
+        if (fm.stats == null)
+            return;
+        try {
+            fm.stats.write(config.getStatsFile());
+            System.out.println("ApexDoc stats written to " + config.getStatsFile());
+        } catch (IOException e) {
+            System.out.println("ApexDoc can't write stats to " + config.getStatsFile() + ": " + e.getMessage());
+        }
+    }
+
+    // groups the classes, loads the optional file templates, and creates the documentation.
+    private static void generate(FileManager fm, ApexDocConfig config, ArrayList<ClassModel> cModels) {
+        // create our Groups
+        TreeMap<String, ClassGroup> mapGroupNameToClassGroup = createMapGroupNameToClassGroup(fm.timer, cModels,
+                config.getSourceDirectory());
+
+        // load up optional specified file templates
+        String projectDetail = fm.parseHTMLFile(config.getAuthorFilePath());
+        fm.progress.worked(1);
+        String homeContents = fm.parseHTMLFile(config.getHomeFilePath());
+        fm.progress.worked(1);
+
+        fm.createDoc(mapGroupNameToClassGroup, cModels, projectDetail, homeContents, config.getHostedSourceURL(),
+                null);
+    }
+
+    private LinkedHashMap<File, ClassModel> parseFiles(ArrayList<File> files, ScopeMatcher scopes,
+                                                       ModelCache cache, AtomicInteger cKept, RunStats stats,
+                                                       RunProgress progress) {
+        LinkedHashMap<File, ClassModel> mapFileToModel = new LinkedHashMap<File, ClassModel>();
+        for (File fromFile : files) {
+            progress.checkCanceled();
+            ClassModel cModel = parseFile(fromFile, scopes, cache, cKept, stats);
+            if (cModel != null) {
+                mapFileToModel.put(fromFile, cModel);
+            }
+            progress.worked(1);
+        }
+        return mapFileToModel;
+    }
+
+    /*************************************************************************
+     * @description parses the .cls files on the engine's work pool. the
+     *              class models are collected in the same order as the files
+     *              list, so the output matches a serial parse.
+     * @param files
+     * @param scopes
+     * @param cache
+     * @param cKept
+     *            - counts the classes taken from memory
+     * @param stats
+     *            - collects each file's numbers for -stats, may be null
+     * @param progress
+     *            - checked for cancellation before each file is parsed
+     * @return map of each class file to its ClassModel, in file order
+     */
+    private LinkedHashMap<File, ClassModel> parseFilesParallel(ArrayList<File> files, final ScopeMatcher scopes,
+                                                               final ModelCache cache, final AtomicInteger cKept,
+                                                               final RunStats stats, final RunProgress progress) {
+        LinkedHashMap<File, ClassModel> mapFileToModel = new LinkedHashMap<File, ClassModel>();
+        ArrayList<Future<ClassModel>> futures = new ArrayList<Future<ClassModel>>(files.size());
+        try {
+            for (final File fromFile : files) {
+                futures.add(workPool.submit(new Callable<ClassModel>() {
+                    public ClassModel call() {
+                        // the files left when a run is canceled are skipped
+                        if (progress.isCanceled())
+                            return null;
+                        return parseFile(fromFile, scopes, cache, cKept, stats);
+                    }
+                }));
+            }
+
+            // progress is reported from this thread, in file order.
+            for (int i = 0; i < files.size(); i++) {
+                progress.checkCanceled();
+                ClassModel cModel = futures.get(i).get();
+                progress.checkCanceled();
+                if (cModel != null) {
+                    mapFileToModel.put(files.get(i), cModel);
+                }
+                progress.worked(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            // the pool is shared, so only this run's unfinished work is dropped
+            for (Future<ClassModel> future : futures)
+                future.cancel(false);
+        }
+        return mapFileToModel;
+    }
+
+    // parses the .cls sources of an in-memory run, on the work pool when there is one.
+    private LinkedHashMap<String, ClassModel> parseSources(Map<String, ? extends CharSequence> sources,
+                                                           final ScopeMatcher scopes, final RunStats stats,
+                                                           final RunProgress progress) {
+        LinkedHashMap<String, ClassModel> mapNameToModel = new LinkedHashMap<String, ClassModel>();
+        LinkedHashMap<String, Future<ClassModel>> futures = new LinkedHashMap<String, Future<ClassModel>>();
+        try {
+            for (Map.Entry<String, ? extends CharSequence> entry : sources.entrySet()) {
+                if (!entry.getKey().endsWith(".cls"))
+                    continue;
+                final CharSequence source = entry.getValue();
+                if (workPool == null) {
+                    progress.checkCanceled();
+                    ClassModel cModel = parseSource(entry.getKey(), source, scopes, stats);
+                    if (cModel != null)
+                        mapNameToModel.put(entry.getKey(), cModel);
+                    progress.worked(1);
+                } else {
+                    final String name = entry.getKey();
+                    futures.put(name, workPool.submit(new Callable<ClassModel>() {
+                        public ClassModel call() {
+                            if (progress.isCanceled())
+                                return null;
+                            return parseSource(name, source, scopes, stats);
+                        }
+                    }));
+                }
+            }
+            // sources with no class in scope have no model
+            for (Map.Entry<String, Future<ClassModel>> entry : futures.entrySet()) {
+                progress.checkCanceled();
+                ClassModel cModel = entry.getValue().get();
+                progress.checkCanceled();
+                if (cModel != null)
+                    mapNameToModel.put(entry.getKey(), cModel);
+                progress.worked(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (Future<ClassModel> future : futures.values())
+                future.cancel(false);
+        }
+        return mapNameToModel;
+    }
+
+    // takes a class file's model from memory, if it is unchanged since an earlier run, or parses it.
+    // with -stats every file is read and parsed, so each has its numbers.
+    private ClassModel parseFile(File file, ScopeMatcher scopes, ModelCache cache, AtomicInteger cKept,
+                                 RunStats stats) {
+        if (models == null || stats != null)
+            return parseFile(file, scopes, cache, stats);
+        long lastModified = file.lastModified();
+        long length = file.length();
+        ClassModel cModel = models.get(file, scopes, lastModified, length);
+        if (cModel != null) {
+            cKept.incrementAndGet();
+            return cModel;
+        }
+        cModel = parseFile(file, scopes, cache, null);
+        if (cModel != null)
+            models.put(file, scopes, lastModified, length, cModel);
+        return cModel;
+    }
+
+    // parses a source of an in-memory run.
+    private static ClassModel parseSource(String name, CharSequence source, ScopeMatcher scopes, RunStats stats) {
+        Object event = PhaseTimer.beginParse();
+        try {
+            long start = System.nanoTime();
+            ClassModel cModel = ApexDoc.parseSource(CharBuffer.wrap(source), scopes);
+            if (stats != null)
+                stats.parsed(name, source, cModel, System.nanoTime() - start);
+            return cModel;
+        } finally {
+            PhaseTimer.endParse(event, name, source.length());
+        }
+    }
+
+    // parses a class file, or takes its model from the cache when one is given, and
+    // adds the file's numbers to the stats when there are any.
+    private static ClassModel parseFile(File file, ScopeMatcher scopes, ModelCache cache, RunStats stats) {
+        Object event = PhaseTimer.beginParse();
+        try {
+            if (cache == null && stats == null)
+                return ApexDoc.parseFileContents(file.getAbsolutePath(), scopes);
+            try {
+                long start = System.nanoTime();
+                byte[] bytes = Files.readAllBytes(file.toPath());
+                String key = null;
+                ClassModel cModel = null;
+                if (cache != null) {
+                    key = cache.key(bytes);
+                    cModel = cache.get(key);
+                }
+                if (cModel == null) {
+                    cModel = ApexDoc.parseSource(StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes)), scopes);
+                    if (cache != null)
+                        cache.put(key, cModel);
+                }
+                if (stats != null)
+                    stats.parsed(file.getPath(), bytes, cModel, System.nanoTime() - start);
+                return cModel;
+            } catch (Exception e) { // Catch exception if any
+                System.err.println("Error: " + e.getMessage());
+            }
+
+            return null;
+        } finally {
+            if (event != null)
+                PhaseTimer.endParse(event, file.getPath(), file.length());
+        }
+    }
+
+    private static TreeMap<String, ClassGroup> createMapGroupNameToClassGroup(PhaseTimer timer,
+                                                                              ArrayList<ClassModel> cModels,
+                                                                              String sourceDirectory) {
+        timer.start(PhaseTimer.Phase.GROUP);
+        TreeMap<String, ClassGroup> map = new TreeMap<String, ClassGroup>();
+        for (ClassModel cmodel : cModels) {
+            String strGroup = cmodel.getClassGroup();
+            String strGroupContent = cmodel.getClassGroupContent();
+            if (strGroupContent != null && sourceDirectory != null)
+                strGroupContent = sourceDirectory + "/" + strGroupContent;
+            ClassGroup cg;
+            if (strGroup != null) {
+                cg = map.get(strGroup);
+                if (cg == null)
+                    cg = new ClassGroup(strGroup, strGroupContent);
+                else if (cg.getContentSource() == null)
+                    cg.setContentSource(strGroupContent);
+                // put the new or potentially modified ClassGroup back in the map
+                map.put(strGroup, cg);
+            }
+        }
+        timer.stop(PhaseTimer.Phase.GROUP, map.size());
+        return map;
+    }
+}
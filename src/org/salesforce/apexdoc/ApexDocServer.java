@@ -0,0 +1,160 @@
+package org.salesforce.apexdoc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/*************************************************************************
+ * @description serves the documentation over HTTP, for the -serve mode,
+ *              rendering each page the first time it is asked for instead of
+ *              writing every page up front. Rendered pages are kept in a
+ *              PageCache of bounded size, so memory stays bounded however
+ *              many classes there are. The files the pages use, such as
+ *              ApexDoc.css, are served from the jar. The server only listens
+ *              on the loopback address.
+ */
+public class ApexDocServer {
+
+    private final HttpServer server;
+    private final ExecutorService pool;
+    private final FileManager.Site site;
+    private final PageCache cache;
+    private final HashMap<String, byte[]> mapNameToAsset = new HashMap<String, byte[]>();
+
+    /*************************************************************************
+     * @param port
+     *            - the port to listen on, 0 for any free port
+     * @param site
+     *            - the documentation to serve
+     * @param cacheBytes
+     *            - the most bytes of rendered pages kept
+     * @param threads
+     *            - number of threads serving requests
+     * @throws IOException
+     *             if the port can't be opened
+     */
+    public ApexDocServer(int port, FileManager.Site site, long cacheBytes, int threads) throws IOException {
+        this.site = site;
+        this.cache = new PageCache(cacheBytes);
+        for (String asset : FileManager.ASSETS)
+            mapNameToAsset.put(asset, FileManager.readAsset(asset));
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ApexDoc server");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(pool);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    serve(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("ApexDoc is serving " + site.getClassCount() + " classes at http://localhost:" +
+                getPort() + "/");
+    }
+
+    /*************************************************************************
+     * @description stops serving, and drops the cached pages.
+     */
+    public void stop() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public PageCache getCache() {
+        return cache;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            send(exchange, 405, "text/plain", "Method not allowed".getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+
+        String name = exchange.getRequestURI().getPath().substring(1);
+        if (name.length() == 0)
+            name = "index" + site.getFileSuffix();
+
+        byte[] contents = mapNameToAsset.get(name);
+        if (contents == null)
+            contents = getPage(name);
+        if (contents == null) {
+            send(exchange, 404, "text/plain", ("Not found: " + name).getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        send(exchange, 200, contentType(name), contents);
+    }
+
+    // a rendered page from the cache, rendering it the first time
+    private byte[] getPage(String name) {
+        String suffix = site.getFileSuffix();
+        if (!name.endsWith(suffix) || name.indexOf('/') != -1)
+            return null;
+        byte[] page = cache.get(name);
+        if (page == null) {
+            String contents = site.render(name.substring(0, name.length() - suffix.length()));
+            if (contents == null)
+                return null;
+            page = contents.getBytes(StandardCharsets.UTF_8);
+            cache.put(name, page);
+        }
+        return page;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] contents)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(contents.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, contents.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(contents);
+        out.close();
+    }
+
+    private static String contentType(String name) {
+        if (name.endsWith(".html"))
+            return "text/html; charset=utf-8";
+        if (name.endsWith(".md"))
+            return "text/markdown; charset=utf-8";
+        if (name.endsWith(".css"))
+            return "text/css";
+        if (name.endsWith(".js"))
+            return "application/javascript";
+        if (name.endsWith(".png"))
+            return "image/png";
+        if (name.endsWith(".gif"))
+            return "image/gif";
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,306 @@
+package org.salesforce.apexdoc;
+
+import java.util.ArrayList;
+
+/*************************************************************************
+ * @description single pass tokenizer over the characters of an Apex class
+ *              file. Tokens are not materialized as Strings: the caller
+ *              reads the type, bounds and line of the current token, and
+ *              only asks for text for the spans it keeps. Line comments,
+ *              block comments and string literals are consumed whole, so
+ *              braces and // inside them never reach the parser.
+ */
+public class ApexLexer {
+
+    enum TokenType {
+        DOC_COMMENT, // /** ... */
+        WORD, // identifier or keyword
+        STRING, // '...'
+        LBRACE, RBRACE, LPAREN, RPAREN, SEMICOLON, EQUALS, AT,
+        OTHER, // any other single character
+        EOF
+    }
+
+    private final char[] buf;
+    private final int limit;
+    private int pos;
+    private int line;
+
+    private TokenType type;
+    private int tokenStart;
+    private int tokenEnd;
+    private int tokenLine;
+
+    public ApexLexer(char[] buf, int offset, int limit) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = limit;
+        this.line = 1;
+    }
+
+    public TokenType next() {
+        skipTrivia();
+        tokenStart = pos;
+        tokenLine = line;
+        if (pos >= limit) {
+            type = TokenType.EOF;
+        } else {
+            char ch = buf[pos];
+            if (ch == '/') {
+                // skipTrivia only stops on a slash-star when it opens a doc comment
+                if (pos + 1 < limit && buf[pos + 1] == '*') {
+                    skipBlockComment();
+                    type = TokenType.DOC_COMMENT;
+                } else {
+                    pos++;
+                    type = TokenType.OTHER;
+                }
+            } else if (ch == '\'') {
+                skipString();
+                type = TokenType.STRING;
+            } else if (isWordChar(ch)) {
+                while (pos < limit && isWordChar(buf[pos]))
+                    pos++;
+                type = TokenType.WORD;
+            } else {
+                pos++;
+                switch (ch) {
+                    case '{': type = TokenType.LBRACE; break;
+                    case '}': type = TokenType.RBRACE; break;
+                    case '(': type = TokenType.LPAREN; break;
+                    case ')': type = TokenType.RPAREN; break;
+                    case ';': type = TokenType.SEMICOLON; break;
+                    case '=': type = TokenType.EQUALS; break;
+                    case '@': type = TokenType.AT; break;
+                    default: type = TokenType.OTHER; break;
+                }
+            }
+        }
+        tokenEnd = pos;
+        return type;
+    }
+
+    public TokenType getType() {
+        return type;
+    }
+
+    public int getStart() {
+        return tokenStart;
+    }
+
+    public int getEnd() {
+        return tokenEnd;
+    }
+
+    public int getLine() {
+        return tokenLine;
+    }
+
+    /*************************************************************************
+     * @description case insensitive comparison of the current token with a
+     *              word, without creating a String for the token.
+     * @param word
+     * @return true if the current token is the given word
+     */
+    public boolean is(String word) {
+        int cch = tokenEnd - tokenStart;
+        if (type != TokenType.WORD || cch != word.length())
+            return false;
+        for (int i = 0; i < cch; i++) {
+            char ch1 = buf[tokenStart + i];
+            char ch2 = word.charAt(i);
+            if (ch1 != ch2 && Character.toLowerCase(ch1) != Character.toLowerCase(ch2))
+                return false;
+        }
+        return true;
+    }
+
+    /*************************************************************************
+     * @description returns true if the current token is one of the scopes
+     *              being documented.
+     * @param scopes
+     * @return boolean
+     */
+    public boolean isScope(ScopeMatcher scopes) {
+        return type == TokenType.WORD && scopes.isScope(buf, tokenStart, tokenEnd);
+    }
+
+    /*************************************************************************
+     * @description adds the lines of the current doc comment token to
+     *              lstComments, trimmed and without the closing star-slash.
+     *              Blank lines are dropped.
+     * @param lstComments
+     */
+    public void addCommentLines(ArrayList<String> lstComments) {
+        int ich = tokenStart;
+        int ichEnd = tokenEnd;
+        if (ichEnd - ich >= 4 && buf[ichEnd - 2] == '*' && buf[ichEnd - 1] == '/')
+            ichEnd -= 2;
+        while (ich < ichEnd) {
+            int ichEol = ich;
+            while (ichEol < ichEnd && buf[ichEol] != '\n')
+                ichEol++;
+            int s = ich;
+            int e = ichEol;
+            while (s < e && buf[s] <= ' ')
+                s++;
+            while (e > s && buf[e - 1] <= ' ')
+                e--;
+            if (e > s)
+                lstComments.add(new String(buf, s, e - s));
+            ich = ichEol + 1;
+        }
+    }
+
+    /*************************************************************************
+     * @description returns the source text between two offsets as it should
+     *              appear in a declaration: comments are removed, and any
+     *              whitespace that spans lines is collapsed to one space.
+     * @param start
+     * @param end
+     * @return String
+     */
+    public String text(int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        int ich = start;
+        boolean pendingSpace = false;
+        while (ich < end) {
+            char ch = buf[ich];
+            if (ch == '/' && ich + 1 < end && buf[ich + 1] == '/') {
+                while (ich < end && buf[ich] != '\n')
+                    ich++;
+                pendingSpace = true;
+            } else if (ch == '/' && ich + 1 < end && buf[ich + 1] == '*') {
+                ich += 2;
+                while (ich < end && !(buf[ich - 1] == '*' && buf[ich] == '/'))
+                    ich++;
+                ich++;
+                pendingSpace = true;
+            } else if (ch <= ' ') {
+                int ichWs = ich;
+                while (ich < end && buf[ich] <= ' ') {
+                    if (buf[ich] == '\n')
+                        pendingSpace = true;
+                    ich++;
+                }
+                if (!pendingSpace)
+                    sb.append(buf, ichWs, ich - ichWs);
+            } else {
+                if (pendingSpace) {
+                    int cch = sb.length();
+                    while (cch > 0 && sb.charAt(cch - 1) <= ' ')
+                        cch--;
+                    sb.setLength(cch);
+                    if (cch > 0)
+                        sb.append(' ');
+                    pendingSpace = false;
+                }
+                if (ch == '\'') {
+                    int ichStr = ich;
+                    ich = endOfString(ich);
+                    sb.append(buf, ichStr, ich - ichStr);
+                } else {
+                    sb.append(ch);
+                    ich++;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /*************************************************************************
+     * @description skips the body of a block whose opening curly brace is the
+     *              current token, stopping just after its matching closing
+     *              brace. only braces, string literals, comments and newlines
+     *              are looked at, and no tokens are produced.
+     */
+    public void skipBlock() {
+        int depth = 1;
+        while (pos < limit) {
+            char ch = buf[pos];
+            if (ch == '\n') {
+                line++;
+                pos++;
+            } else if (ch == '{') {
+                depth++;
+                pos++;
+            } else if (ch == '}') {
+                pos++;
+                if (--depth == 0)
+                    break;
+            } else if (ch == '\'') {
+                pos = endOfString(pos);
+            } else if (ch == '/' && pos + 1 < limit && buf[pos + 1] == '/') {
+                while (pos < limit && buf[pos] != '\n')
+                    pos++;
+            } else if (ch == '/' && pos + 1 < limit && buf[pos + 1] == '*') {
+                skipBlockComment();
+            } else {
+                pos++;
+            }
+        }
+        tokenStart = pos;
+        tokenEnd = pos;
+    }
+
+    private void skipTrivia() {
+        while (pos < limit) {
+            char ch = buf[pos];
+            if (ch == '\n') {
+                line++;
+                pos++;
+            } else if (ch <= ' ' || ch == '\uFEFF') {
+                pos++;
+            } else if (ch == '/' && pos + 1 < limit && buf[pos + 1] == '/') {
+                while (pos < limit && buf[pos] != '\n')
+                    pos++;
+            } else if (ch == '/' && pos + 1 < limit && buf[pos + 1] == '*') {
+                // doc comments start with /** (but /**/ is just an empty comment)
+                if (pos + 2 < limit && buf[pos + 2] == '*' && !(pos + 3 < limit && buf[pos + 3] == '/'))
+                    return;
+                skipBlockComment();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void skipBlockComment() {
+        pos += 2;
+        while (pos < limit) {
+            char ch = buf[pos++];
+            if (ch == '\n')
+                line++;
+            else if (ch == '*' && pos < limit && buf[pos] == '/') {
+                pos++;
+                return;
+            }
+        }
+    }
+
+    private void skipString() {
+        pos = endOfString(pos);
+    }
+
+    // string literals can't span lines, so an unterminated one ends at the newline.
+    private int endOfString(int ich) {
+        ich++;
+        while (ich < limit) {
+            char ch = buf[ich];
+            if (ch == '\\') {
+                ich += 2;
+            } else if (ch == '\'') {
+                return ich + 1;
+            } else if (ch == '\n') {
+                return ich;
+            } else {
+                ich++;
+            }
+        }
+        return limit;
+    }
+
+    private static boolean isWordChar(char ch) {
+        return ch == '_' || Character.isLetterOrDigit(ch);
+    }
+}
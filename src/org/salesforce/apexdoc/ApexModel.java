@@ -1,7 +1,14 @@
 package org.salesforce.apexdoc;
 
+/*************************************************************************
+ * @description the parts of a class, method or property that come from its
+ *              declaration and doc comment. To keep large codebases small in
+ *              memory, empty values are stored as null, values repeated across
+ *              many models (scope, author, date) are interned, and the rarely
+ *              used example and deprecated text live in a separate object that
+ *              is only created when one of them is set.
+ */
 public class ApexModel {
-    private String deprecated;
 
     public String getNameLine() {
         return nameLine;
@@ -14,7 +21,6 @@ public class ApexModel {
     public void setNameLine(String nameLine, int iLine) {
         this.nameLine = nameLine.trim();
         this.inameLine = iLine;
-        parseScope();
     }
 
     public String getDescription() {
@@ -22,7 +28,7 @@ public class ApexModel {
     }
 
     public void setDescription(String description) {
-        this.description = description;
+        this.description = compact(description);
     }
 
     public String getAuthor() {
@@ -30,14 +36,16 @@ public class ApexModel {
     }
 
     public void setAuthor(String author) {
-        this.author = author;
+        this.author = intern(author);
     }
 
     public void setDeprecated(String dep) {
-        this.deprecated = dep;
+        dep = compact(dep);
+        if (dep != null || cold != null)
+            getCold().deprecated = dep;
     }
     public String getDeprecated() {
-        return deprecated == null ? "" : deprecated;
+        return cold == null || cold.deprecated == null ? "" : cold.deprecated;
     }
 
     public String getDate() {
@@ -45,7 +53,7 @@ public class ApexModel {
     }
 
     public void setDate(String date) {
-        this.date = date;
+        this.date = intern(date);
     }
 
     public String getReturns() {
@@ -53,15 +61,17 @@ public class ApexModel {
     }
 
     public void setReturns(String returns) {
-        this.returns = returns;
+        this.returns = compact(returns);
     }
 
     public String getExample() {
-        return example == null ? "" : example;
+        return cold == null || cold.example == null ? "" : cold.example;
     }
 
     public void setExample(String example) {
-        this.example = example;
+        example = compact(example);
+        if (example != null || cold != null)
+            getCold().example = example;
     }
 
     public String getScope() {
@@ -69,16 +79,23 @@ public class ApexModel {
     }
 
     public void setScope(String scope) {
-        this.scope = scope;
+        this.scope = intern(scope);
     }
 
-    private void parseScope() {
-        scope = null;
-        if (nameLine != null) {
-            String str = ApexDoc.strContainsScope(nameLine);
-            if (str != null)
-                scope = str;
-        }
+    // empty strings are stored as null, the getters hand them back as ""
+    static String compact(String str) {
+        return str == null || str.length() == 0 ? null : str;
+    }
+
+    // for values shared by many models, so they share one copy
+    static String intern(String str) {
+        return str == null || str.length() == 0 ? null : str.intern();
+    }
+
+    private ColdFields getCold() {
+        if (cold == null)
+            cold = new ColdFields();
+        return cold;
     }
 
     private String nameLine;
@@ -88,6 +105,11 @@ public class ApexModel {
     private String date;
     private String returns;
     private String scope;
-    private String example;
+    private ColdFields cold;
 
+    // fields most models leave empty
+    private static class ColdFields {
+        String example;
+        String deprecated;
+    }
 }
@@ -29,7 +29,8 @@ public class ClassGroup {
         if (strContentSource != null) {
             int idx1 = strContentSource.lastIndexOf("/");
             int idx2 = strContentSource.lastIndexOf(".");
-            if (idx1 != -1 && idx2 != -1) {
+            // the path is just a name in an in-memory run
+            if (idx2 != -1) {
                 return strContentSource.substring(idx1 + 1, idx2);
             }
         }
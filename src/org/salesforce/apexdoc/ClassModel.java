@@ -1,7 +1,7 @@
 package org.salesforce.apexdoc;
 
-import java.util.List;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeMap;
 import java.util.Collections;
 import java.util.Comparator;
@@ -12,73 +12,159 @@ public class ClassModel extends ApexModel {
         methods = new ArrayList<MethodModel>();
         properties = new ArrayList<PropertyModel>();
         this.cmodelParent = cmodelParent;
-        childClasses = new ArrayList<ClassModel>();
+        childClasses = NO_CHILDREN;
     }
 
+    // most classes have no nested classes, so they share an empty list until one is added
+    private static final List<ClassModel> NO_CHILDREN = Collections.emptyList();
+
     private ArrayList<MethodModel> methods;
     private ArrayList<PropertyModel> properties;
     private String strClassGroup;
     private String strClassGroupContent;
     private ClassModel cmodelParent;
-    private ArrayList<ClassModel> childClasses;
+    private List<ClassModel> childClasses;
     private boolean isInterface;
-
-    public ArrayList<PropertyModel> getProperties() {
-        return properties;
+    private String strClassName = "";
+
+    // sorted views, built when first asked for, and dropped when their list changes. they are shared
+    // by every page rendered from the model, on any thread, so they can't be modified
+    private volatile List<PropertyModel> propertiesSorted;
+    private volatile List<MethodModel> methodsSorted;
+    private volatile List<ClassModel> childClassesSorted;
+
+    /*************************************************************************
+     * @description returns the properties in source order. The list can't be
+     *              modified; use addProperty or setProperties.
+     * @return List<PropertyModel>
+     */
+    public List<PropertyModel> getProperties() {
+        return Collections.unmodifiableList(properties);
+    }
+
+    /*************************************************************************
+     * @description returns the properties sorted by name. The list is shared
+     *              between calls, so it can't be modified.
+     * @return List<PropertyModel>
+     */
+    public List<PropertyModel> getPropertiesSorted() {
+        List<PropertyModel> sorted = propertiesSorted;
+        if (sorted == null) {
+            TreeMap<String, PropertyModel> tm = new TreeMap<String, PropertyModel>();
+            for (PropertyModel prop : properties)
+                tm.put(prop.getPropertyName().toLowerCase(), prop);
+            sorted = Collections.unmodifiableList(new ArrayList<PropertyModel>(tm.values()));
+            propertiesSorted = sorted;
+        }
+        return sorted;
+    }
+
+    public void setProperties(List<PropertyModel> properties) {
+        this.properties = new ArrayList<PropertyModel>(properties);
+        propertiesSorted = null;
+    }
+
+    public void addProperty(PropertyModel prop) {
+        properties.add(prop);
+        propertiesSorted = null;
+    }
+
+    /*************************************************************************
+     * @description returns the methods in source order. The list can't be
+     *              modified; use addMethod or setMethods.
+     * @return List<MethodModel>
+     */
+    public List<MethodModel> getMethods() {
+        return Collections.unmodifiableList(methods);
+    }
+
+    /*************************************************************************
+     * @description returns the methods sorted by name, with the constructors
+     *              first. The list is shared between calls, so it can't be
+     *              modified.
+     * @return List<MethodModel>
+     */
+    public List<MethodModel> getMethodsSorted() {
+        List<MethodModel> sorted = methodsSorted;
+        if (sorted == null) {
+            ArrayList<MethodModel> list = new ArrayList<MethodModel>(methods);
+            final String className = getClassName();
+            Collections.sort(list, new Comparator<MethodModel>(){
+                @Override
+                public int compare(MethodModel o1, MethodModel o2) {
+                    String methodName1 = o1.getMethodName();
+                    String methodName2 = o2.getMethodName();
+
+                    // constructors come first, in the order they are declared
+                    boolean isConstructor1 = methodName1.equals(className);
+                    boolean isConstructor2 = methodName2.equals(className);
+                    if (isConstructor1 != isConstructor2)
+                        return isConstructor1 ? -1 : 1;
+                    return (methodName1.toLowerCase().compareTo(methodName2.toLowerCase()));
+                }
+            });
+            sorted = Collections.unmodifiableList(list);
+            methodsSorted = sorted;
+        }
+        return sorted;
     }
 
-    public ArrayList<PropertyModel> getPropertiesSorted() {
-        TreeMap<String, PropertyModel> tm = new TreeMap<String, PropertyModel>();
-        for (PropertyModel prop : properties)
-            tm.put(prop.getPropertyName().toLowerCase(), prop);
-        return new ArrayList<PropertyModel>(tm.values());
+    public void setMethods(List<MethodModel> methods) {
+        this.methods = new ArrayList<MethodModel>(methods);
+        methodsSorted = null;
     }
 
-    public void setProperties(ArrayList<PropertyModel> properties) {
-        this.properties = properties;
+    public void addMethod(MethodModel method) {
+        methods.add(method);
+        methodsSorted = null;
     }
 
-    public ArrayList<MethodModel> getMethods() {
-        return methods;
+    /*************************************************************************
+     * @description returns the nested classes sorted by name. The list is
+     *              shared between calls, so it can't be modified.
+     * @return List<ClassModel>
+     */
+    public List<ClassModel> getChildClassesSorted() {
+        List<ClassModel> sorted = childClassesSorted;
+        if (sorted == null) {
+            TreeMap<String, ClassModel> tm = new TreeMap<String, ClassModel>();
+            for (ClassModel cm : childClasses)
+                tm.put(cm.getClassName().toLowerCase(), cm);
+            sorted = Collections.unmodifiableList(new ArrayList<ClassModel>(tm.values()));
+            childClassesSorted = sorted;
+        }
+        return sorted;
     }
 
-    public ArrayList<MethodModel> getMethodsSorted() {
-        @SuppressWarnings("unchecked")
-		List<MethodModel> sorted = (List<MethodModel>)methods.clone();
-        Collections.sort(sorted, new Comparator<MethodModel>(){
-            @Override
-            public int compare(MethodModel o1, MethodModel o2) {
-                String methodName1 = o1.getMethodName();
-                String methodName2 = o2.getMethodName();
-                String className = getClassName();
-                
-                if(methodName1.equals(className)){
-                    return Integer.MIN_VALUE;
-                } else if(methodName2.equals(className)){
-                    return Integer.MAX_VALUE;
-                }
-                return (methodName1.toLowerCase().compareTo(methodName2.toLowerCase()));
-            }
-        });
-        return new ArrayList<MethodModel>(sorted);
+    // the nested classes in source order, which can only be added to with addChildClass
+    public List<ClassModel> getChildClasses() {
+        return Collections.unmodifiableList(childClasses);
     }
 
-    public void setMethods(ArrayList<MethodModel> methods) {
-        this.methods = methods;
+    public void addChildClass(ClassModel child) {
+        if (childClasses == NO_CHILDREN)
+            childClasses = new ArrayList<ClassModel>(2);
+        childClasses.add(child);
+        childClassesSorted = null;
     }
 
-    public ArrayList<ClassModel> getChildClassesSorted() {
-        TreeMap<String, ClassModel> tm = new TreeMap<String, ClassModel>();
-        for (ClassModel cm : childClasses)
-            tm.put(cm.getClassName().toLowerCase(), cm);
-        return new ArrayList<ClassModel>(tm.values());
+    public void setNameLine(String nameLine, int iLine) {
+        super.setNameLine(nameLine, iLine);
+        strClassName = parseClassName();
     }
 
-    public void addChildClass(ClassModel child) {
-        childClasses.add(child);
+    /*************************************************************************
+     * @description returns the name of the class, qualified by its outer
+     *              class's name for a nested class. It is worked out once,
+     *              when the name line is set, so an outer class must be named
+     *              before its nested classes.
+     * @return String
+     */
+    public String getClassName() {
+        return strClassName;
     }
 
-    public String getClassName() {
+    private String parseClassName() {
         String nameLine = getNameLine();
         String strParent = cmodelParent == null ? "" : cmodelParent.getClassName() + ".";
         if (nameLine != null)
@@ -121,8 +207,13 @@ public class ClassModel extends ApexModel {
             return strClassGroup;
     }
 
+    // the group from this class's own doc comment, ignoring its parent's.
+    String getDeclaredClassGroup() {
+        return strClassGroup;
+    }
+
     public void setClassGroup(String strGroup) {
-        strClassGroup = strGroup;
+        strClassGroup = strGroup == null ? null : strGroup.intern();
     }
 
     public String getClassGroupContent() {
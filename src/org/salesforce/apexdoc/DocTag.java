@@ -0,0 +1,116 @@
+package org.salesforce.apexdoc;
+
+/*************************************************************************
+ * @description the @tags ApexDoc understands in a doc comment. A line is
+ *              recognized by the tag that follows its leading stars and
+ *              whitespace, compared case insensitively in place, so no
+ *              lowercase copy of the line is made.
+ */
+public enum DocTag {
+    AUTHOR("author"),
+    DATE("date"),
+    DEPRECATED("deprecated"),
+    DESCRIPTION("description"),
+    EXAMPLE("example"),
+    EXCEPTION("exception"),
+    GROUP("group"),
+    GROUP_CONTENT("group-content"),
+    PARAM("param"),
+    RETURN("return"),
+    // a line that does not start with a tag we know
+    NONE(null);
+
+    private final String strName;
+
+    DocTag(String strName) {
+        this.strName = strName;
+    }
+
+    public String getName() {
+        return strName;
+    }
+
+    /*************************************************************************
+     * @description returns the offset of the text in a doc comment line, just
+     *              past any leading slashes, stars and whitespace.
+     * @param comment
+     * @return int
+     */
+    public static int ichText(String comment) {
+        int ich = 0;
+        int cch = comment.length();
+        while (ich < cch) {
+            char ch = comment.charAt(ich);
+            if (ch != '/' && ch != '*' && ch > ' ')
+                break;
+            ich++;
+        }
+        return ich;
+    }
+
+    /*************************************************************************
+     * @description recognizes the tag at the given offset of a doc comment
+     *              line.
+     * @param comment
+     * @param ich
+     *            - offset of the text, from ichText()
+     * @return the tag, or NONE if the text doesn't start with a known tag
+     */
+    public static DocTag match(String comment, int ich) {
+        if (ich >= comment.length() || comment.charAt(ich) != '@')
+            return NONE;
+        int ichName = ich + 1;
+        int ichEnd = ichName;
+        while (ichEnd < comment.length()) {
+            char ch = comment.charAt(ichEnd);
+            if (!Character.isLetter(ch) && ch != '-')
+                break;
+            ichEnd++;
+        }
+        switch (ichEnd - ichName) {
+            case 4:
+                return is(comment, ichName, DATE);
+            case 5:
+                if (is(comment, ichName, PARAM) == PARAM)
+                    return PARAM;
+                return is(comment, ichName, GROUP);
+            case 6:
+                if (is(comment, ichName, AUTHOR) == AUTHOR)
+                    return AUTHOR;
+                return is(comment, ichName, RETURN);
+            case 7:
+                if (is(comment, ichName, EXAMPLE) == EXAMPLE)
+                    return EXAMPLE;
+                // @returns is a common spelling of @return
+                return comment.regionMatches(true, ichName, "returns", 0, 7) ? RETURN : NONE;
+            case 9:
+                return is(comment, ichName, EXCEPTION);
+            case 10:
+                return is(comment, ichName, DEPRECATED);
+            case 11:
+                return is(comment, ichName, DESCRIPTION);
+            case 13:
+                return is(comment, ichName, GROUP_CONTENT);
+            default:
+                return NONE;
+        }
+    }
+
+    /*************************************************************************
+     * @description returns the text following the tag at the given offset.
+     * @param comment
+     * @param ich
+     *            - offset of the tag's @
+     * @return the trimmed value, possibly empty
+     */
+    public static String value(String comment, int ich) {
+        ich++;
+        while (ich < comment.length() && (Character.isLetter(comment.charAt(ich)) || comment.charAt(ich) == '-'))
+            ich++;
+        return comment.substring(ich).trim();
+    }
+
+    private static DocTag is(String comment, int ich, DocTag tag) {
+        return comment.regionMatches(true, ich, tag.strName, 0, tag.strName.length()) ? tag : NONE;
+    }
+}
@@ -1,25 +1,32 @@
 package org.salesforce.apexdoc;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-enum OutputType{HTML, MARKDOWN}
-
 public class FileManager {
-    FileOutputStream fos;
-    DataOutputStream dos;
     String path;
+    ScopeMatcher scopes;
     public String header;
     public String APEX_DOC_PATH = "";
     public StringBuffer infoMessages;
@@ -28,6 +35,71 @@ public class FileManager {
         outputFormat = whatFormat;
     }
 
+    // when incremental, pages whose inputs haven't changed since the last run are left alone
+    boolean incremental;
+    OutputManifest manifest;
+    String strSettingsFingerprint;
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    // when streaming, pages are written as they are rendered, through a queue of this many pages
+    int streamCapacity;
+    PageQueue pageQueue;
+
+    // when the navigation is shared, the class menu is written once to NAV_FILE, and
+    // each html page loads it, rather than embedding its own copy
+    public static final String NAV_FILE = "apexdoc-nav";
+    boolean sharedNav;
+    public void setSharedNav(boolean sharedNav) {
+        this.sharedNav = sharedNav;
+    }
+    public void setStreamCapacity(int streamCapacity) {
+        this.streamCapacity = streamCapacity;
+    }
+
+    // pages are written on these threads, or on the calling thread when there are none
+    ExecutorService writerPool;
+    int writerThreads;
+    OutputWriter outputWriter;
+    public void setWriterPool(ExecutorService writerPool, int writerThreads) {
+        this.writerPool = writerPool;
+        this.writerThreads = writerThreads;
+    }
+
+    // class pages are rendered on this pool, or on the calling thread when there is none
+    ForkJoinPool renderPool;
+    public void setRenderPool(ForkJoinPool renderPool) {
+        this.renderPool = renderPool;
+    }
+
+    // for an in-memory run, the pages go to this sink instead of the target folder,
+    // and the home, banner and group content files are looked up in the sources by name
+    PageSink pageSink;
+    Map<String, ? extends CharSequence> sources;
+    public void setPageSink(PageSink pageSink) {
+        this.pageSink = pageSink;
+    }
+    public void setSources(Map<String, ? extends CharSequence> sources) {
+        this.sources = sources;
+    }
+
+    // the time each phase of the run takes, and what it handled
+    final PhaseTimer timer = new PhaseTimer();
+
+    // the numbers of each class file and its page, for -stats, or null
+    RunStats stats;
+    public void setStats(RunStats stats) {
+        this.stats = stats;
+    }
+
+    // counts the pages rendered and written, and says whether the run was canceled
+    RunProgress progress = new RunProgress(null);
+    void setProgress(RunProgress progress) {
+        this.progress = progress;
+        timer.setProgress(progress);
+    }
+
     public FileManager() {
         infoMessages = new StringBuffer();
 
@@ -37,21 +109,29 @@ public class FileManager {
 
     private static String escapeHTML(String s) {
         StringBuilder out = new StringBuilder(Math.max(16, s.length()));
+        escapeHTML(out, s);
+        return out.toString();
+    }
+
+    // appends the escaped string, copying runs that need no escaping in one go
+    private static void escapeHTML(StringBuilder out, String s) {
+        int ichRun = 0;
         for (int i = 0; i < s.length(); i++) {
             char c = s.charAt(i);
             if (c > 127 || c == '"' || c == '<' || c == '>' || c == '&') {
+                out.append(s, ichRun, i);
                 out.append("&#");
                 out.append((int) c);
                 out.append(';');
-            } else {
-                out.append(c);
+                ichRun = i + 1;
             }
         }
-        return out.toString();
+        out.append(s, ichRun, s.length());
     }
 
-    public FileManager(String path) {
+    public FileManager(String path, ScopeMatcher scopes) {
         infoMessages = new StringBuffer();
+        this.scopes = scopes;
 
         if (path == null || path.trim().length() == 0)
             this.path = ".";
@@ -59,36 +139,117 @@ public class FileManager {
             this.path = path;
     }
 
-    private boolean writeFiles(TreeMap<String, String> mapFNameToContent, IProgressMonitor monitor) {
-        String fileSuffix = ".html";
+    // the folder the documentation is written to, within the target folder
+    private String getOutputPath() {
+        if (path.endsWith("/") || path.endsWith("\\"))
+            return path + Constants.ROOT_DIRECTORY;
+        else
+            return path + "/" + Constants.ROOT_DIRECTORY;
+    }
+
+    private String getFileSuffix() {
         if (outputFormat == OutputType.MARKDOWN)
-            fileSuffix = ".md";
+            return ".md";
+        return ".html";
+    }
 
-        try {
-            if (path.endsWith("/") || path.endsWith("\\")) {
-                path += Constants.ROOT_DIRECTORY; // + "/" + fileName + ".html";
-            } else {
-                path += "/" + Constants.ROOT_DIRECTORY; // + "/" + fileName + ".html";
+    private synchronized void writePage(String pageName, String contents) throws IOException {
+        progress.checkCanceled();
+        timer.count(PhaseTimer.Phase.WRITE, 1);
+        RunStats.FileStats fileStats = null;
+        if (stats != null && pageName.endsWith(getFileSuffix()))
+            fileStats = stats.forPage(pageName.substring(0, pageName.length() - getFileSuffix().length()));
+        long start = System.nanoTime();
+        if (pageSink != null) {
+            Object event = PhaseTimer.beginWrite();
+            byte[] bytes = contents.getBytes(StandardCharsets.UTF_8);
+            pageSink.page(pageName, bytes);
+            PhaseTimer.endWrite(event, pageName, bytes.length);
+            if (fileStats != null)
+                fileStats.written(bytes.length, System.nanoTime() - start);
+            progress.worked(1);
+            return;
+        }
+        String fileName = getOutputPath() + "/" + pageName;
+        if (writerPool == null) {
+            int cb = OutputWriter.write(fileName, contents);
+            if (fileStats != null)
+                fileStats.written(cb, System.nanoTime() - start);
+            System.out.println(fileName + " Processed...");
+            infoMessages.append(fileName + " Processed...\n");
+            progress.worked(1);
+            return;
+        }
+        if (outputWriter == null)
+            outputWriter = new OutputWriter(writerPool, writerThreads, infoMessages);
+        outputWriter.submit(fileName, contents, fileStats);
+        progress.worked(1);
+    }
+
+    // drops the pages still waiting to be written, and stops the writers, once the run is canceled or failed
+    private void abandonWrites() {
+        if (pageQueue != null) {
+            pageQueue.cancel();
+            pageQueue = null;
+        }
+        synchronized (this) {
+            if (outputWriter != null) {
+                outputWriter.cancel();
+                outputWriter = null;
             }
+        }
+    }
 
-            (new File(path)).mkdirs();
+    /********************************************************************************************
+     * @description adds a rendered page to the output. pages are collected in
+     *              mapFNameToContent and written together by writeFiles, unless
+     *              streaming, when they are handed straight to the page writer.
+     * @param mapFNameToContent
+     * @param fileName
+     * @param contents
+     */
+    private void putPage(TreeMap<String, String> mapFNameToContent, String fileName, String contents) {
+        timer.count(PhaseTimer.Phase.RENDER, 1);
+        if (pageQueue == null) {
+            mapFNameToContent.put(fileName, contents);
+            return;
+        }
+        try {
+            pageQueue.put(fileName, contents);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
+    private boolean writeFiles(TreeMap<String, String> mapFNameToContent) {
+        String fileSuffix = getFileSuffix();
+
+        try {
+            String path = getOutputPath();
+            if (pageSink == null)
+                (new File(path)).mkdirs();
+
+            timer.start(PhaseTimer.Phase.WRITE);
             for (String fileName : mapFNameToContent.keySet()) {
-                String contents = mapFNameToContent.get(fileName);
-                fileName = path + "/" + fileName + fileSuffix;
-                File file = new File(fileName);
-                fos = new FileOutputStream(file);
-                dos = new DataOutputStream(fos);
-                dos.write(contents.getBytes());
-                dos.close();
-                fos.close();
-                infoMessages.append(fileName + " Processed...\n");
-                System.out.println(fileName + " Processed...");
-                if (monitor != null)
-                    monitor.worked(1);
+                writePage(fileName + fileSuffix, mapFNameToContent.get(fileName));
+            }
+            if (pageQueue != null) {
+                pageQueue.close();
+                pageQueue = null;
+            }
+            if (outputWriter != null) {
+                outputWriter.close();
+                outputWriter = null;
             }
+            timer.stop(PhaseTimer.Phase.WRITE);
+            timer.start(PhaseTimer.Phase.ASSETS);
             copy(path);
+            timer.stop(PhaseTimer.Phase.ASSETS, ASSETS.length);
+            if (manifest != null)
+                manifest.save();
             return true;
+        } catch (CancellationException e) {
+            throw e;
         } catch (Exception e) {
 
             e.printStackTrace();
@@ -97,19 +258,35 @@ public class FileManager {
         return false;
     }
 
-    private String strLinkfromModel(ApexModel model, String strClassName, String hostedSourceURL) {
-        return "<a target='_blank' class='hostedSourceLink' href='" + hostedSourceURL + strClassName + ".cls#L"
-                + model.getInameLine() + "'>";
+    /********************************************************************************************
+     * @description in an incremental run, records what a page is built from and
+     *              returns whether the page on disk was already built from it.
+     * @param fileName
+     * @param strFingerprint
+     *            fingerprint of the page's own inputs
+     * @return true if the page doesn't need to be rendered or written
+     */
+    private boolean isPageCurrent(String fileName, String strFingerprint) {
+        if (manifest == null)
+            return false;
+        String strPageFile = fileName + getFileSuffix();
+        return manifest.isCurrent(strPageFile, OutputManifest.fingerprint(strSettingsFingerprint, strFingerprint),
+                new File(getOutputPath(), strPageFile));
+    }
+
+    private void appendLinkfromModel(StringBuilder contents, ApexModel model, String strClassName, String hostedSourceURL) {
+        contents.append("<a target='_blank' class='hostedSourceLink' href='").append(hostedSourceURL)
+                .append(strClassName).append(".cls#L").append(model.getInameLine()).append("'>");
     }
 
     private String strHTMLScopingPanel() {
         String str = "<tr><td colspan='2' style='text-align: center;' >";
         str += "Show: ";
 
-        for (int i = 0; i < ApexDoc.rgstrScope.length; i++) {
-            str += "<input type='checkbox' checked='checked' id='cbx" + ApexDoc.rgstrScope[i] +
-                    "' onclick='ToggleScope(\"" + ApexDoc.rgstrScope[i] + "\", this.checked );'>" +
-                    ApexDoc.rgstrScope[i] + "</input>&nbsp;&nbsp;";
+        for (int i = 0; i < scopes.size(); i++) {
+            str += "<input type='checkbox' checked='checked' id='cbx" + scopes.get(i) +
+                    "' onclick='ToggleScope(\"" + scopes.get(i) + "\", this.checked );'>" +
+                    scopes.get(i) + "</input>&nbsp;&nbsp;";
         }
         str += "</td></tr>";
         return str;
@@ -122,129 +299,295 @@ public class FileManager {
      * @param projectDetail
      * @param homeContents
      * @param hostedSourceURL
-     * @param monitor
      */
     private void makeFile(TreeMap<String, ClassGroup> mapGroupNameToClassGroup, ArrayList<ClassModel> cModels,
-                          String projectDetail, String homeContents, String hostedSourceURL, IProgressMonitor monitor) {
-        String links = "<table width='100%'>";
-        links += strHTMLScopingPanel();
-        links += "<tr style='vertical-align:top;' >";
-        links += getPageLinks(mapGroupNameToClassGroup, cModels);
-
-        if (homeContents != null && homeContents.trim().length() > 0) {
-            homeContents = links + "<td class='contentTD'>" + "<h2 class='section-title'>Home</h2>" + homeContents + "</td>";
-            homeContents = Constants.getHeader(projectDetail) + homeContents + Constants.FOOTER;
-        } else {
-            homeContents = Constants.DEFAULT_HOME_CONTENTS;
-            homeContents = links + "<td class='contentTD'>" + "<h2 class='section-title'>Home</h2>" + homeContents + "</td>";
-            homeContents = Constants.getHeader(projectDetail) + homeContents + Constants.FOOTER;
+                          String projectDetail, String homeContents, String hostedSourceURL) {
+        timer.start(PhaseTimer.Phase.SIDEBAR);
+        String navigation = getNavigation(mapGroupNameToClassGroup, cModels);
+        String links = getLinks(navigation);
+        timer.stop(PhaseTimer.Phase.SIDEBAR, cModels.size());
+
+        timer.start(PhaseTimer.Phase.RENDER);
+        // classes without a name line get no page
+        ArrayList<ClassModel> cModelsPaged = new ArrayList<ClassModel>(cModels.size());
+        for (ClassModel cModel : cModels) {
+            if (cModel.getNameLine() != null && cModel.getNameLine().length() > 0)
+                cModelsPaged.add(cModel);
         }
+        // each page is rendered and written: the home page, the shared menu, the group pages and the class pages
+        int cPages = 1 + (sharedNav && outputFormat == OutputType.HTML ? 1 : 0) + cModelsPaged.size();
+        for (ClassGroup cg : mapGroupNameToClassGroup.values()) {
+            if (cg.getContentSource() != null)
+                cPages++;
+        }
+        progress.setRemainingWork(cPages * 2);
+
+        // every page depends on the settings and header, and html pages also embed the links
+        if (incremental) {
+            manifest = OutputManifest.load(path);
+            String strScopes = "";
+            for (int i = 0; i < scopes.size(); i++)
+                strScopes += scopes.get(i) + ";";
+            strSettingsFingerprint = OutputManifest.fingerprint(outputFormat.name(), strScopes, hostedSourceURL,
+                    projectDetail, outputFormat == OutputType.HTML ? links : null);
+        }
+
+        homeContents = getHomePage(links, projectDetail, homeContents);
 
-        String fileName = "";
         TreeMap<String, String> mapFNameToContent = new TreeMap<String, String>();
-        mapFNameToContent.put("index", homeContents);
+        if (streamCapacity > 0) {
+            final String fileSuffix = getFileSuffix();
+            if (pageSink == null)
+                (new File(getOutputPath())).mkdirs();
+            pageQueue = new PageQueue(streamCapacity, new PageQueue.PageWriter() {
+                public void writePage(String fileName, String contents) throws IOException {
+                    FileManager.this.writePage(fileName + fileSuffix, contents);
+                }
+            });
+        }
+        try {
+            // a page that is already up to date is neither rendered nor written
+            if (!isPageCurrent("index", OutputManifest.fingerprint(homeContents))) {
+                putPage(mapFNameToContent, "index", homeContents);
+                progress.worked(1);
+            } else {
+                progress.worked(2);
+            }
+            if (sharedNav && outputFormat == OutputType.HTML) {
+                if (!isPageCurrent(NAV_FILE, OutputManifest.fingerprint(navigation))) {
+                    putPage(mapFNameToContent, NAV_FILE, navigation);
+                    progress.worked(1);
+                } else {
+                    progress.worked(2);
+                }
+            }
 
-        // create our Class Group content files
-        createClassGroupContent(mapFNameToContent, links, projectDetail, mapGroupNameToClassGroup, cModels, monitor);
+            // create our Class Group content files
+            createClassGroupContent(mapFNameToContent, links, projectDetail, mapGroupNameToClassGroup, cModels);
 
-        if (outputFormat == OutputType.HTML)
-            createHTMLFiles(cModels, projectDetail, hostedSourceURL, monitor, links, mapFNameToContent);
-        else
-            createMarkdownFiles(cModels, projectDetail, hostedSourceURL, monitor, links, mapFNameToContent);
+            createClassFiles(cModelsPaged, projectDetail, hostedSourceURL, links, mapFNameToContent);
+        } finally {
+            // the writers are already closed when every page was written. otherwise the run was
+            // canceled or failed, such as when the page writer couldn't write, so stop them
+            abandonWrites();
+        }
     }
 
-    private void createHTMLFiles(ArrayList<ClassModel> cModels, String projectDetail, String hostedSourceURL, IProgressMonitor monitor, String links, TreeMap<String, String> mapFNameToContent) {
-        String fileName;
-        for (ClassModel cModel : cModels) {
-            String contents = links;
-            if (cModel.getNameLine() != null && cModel.getNameLine().length() > 0) {
-                fileName = cModel.getClassName();
-                contents += "<td class='contentTD'>";
+    // the start of every page: the scoping panel, and the sidebar with the Class Menu
+    private String getLinks(String navigation) {
+        String links = "<table width='100%'>";
+        links += strHTMLScopingPanel();
+        links += "<tr style='vertical-align:top;' >";
+        links += getPageLinks(navigation);
+        return links;
+    }
 
-                contents += htmlForClassModel(cModel, hostedSourceURL);
+    private static String getHomePage(String links, String projectDetail, String homeContents) {
+        if (homeContents == null || homeContents.trim().length() == 0)
+            homeContents = Constants.DEFAULT_HOME_CONTENTS;
+        homeContents = links + "<td class='contentTD'>" + "<h2 class='section-title'>Home</h2>" + homeContents + "</td>";
+        return Constants.getHeader(projectDetail) + homeContents + Constants.FOOTER;
+    }
 
-                // deal with any nested classes
-                for (ClassModel cmChild : cModel.getChildClassesSorted()) {
-                    contents += "<p/>";
-                    contents += htmlForClassModel(cmChild, hostedSourceURL);
-                }
+    private static String getGroupPage(String links, String projectDetail, ClassGroup cg, String cgContent) {
+        String strHtml = Constants.getHeader(projectDetail) + links + "<td class='contentTD'>" +
+                "<h2 class='section-title'>" +
+                escapeHTML(cg.getName()) + "</h2>" + cgContent + "</td>";
+        strHtml += Constants.FOOTER;
+        return strHtml;
+    }
 
-            } else {
-                continue;
+    /********************************************************************************************
+     * @description creates the page for each class, and writes out all the pages.
+     *              With more than one render thread, the pages are rendered on a
+     *              fork/join pool, and then added to the output in model order, so
+     *              the output is the same as rendering them one after another.
+     *              When streaming, they are rendered a queue's worth at a time, to
+     *              keep the memory bound.
+     * @param cModelsPaged
+     *            the classes that get a page
+     * @param projectDetail
+     * @param hostedSourceURL
+     * @param links
+     * @param mapFNameToContent
+     */
+    private void createClassFiles(ArrayList<ClassModel> cModelsPaged, String projectDetail, String hostedSourceURL,
+                                  String links, TreeMap<String, String> mapFNameToContent) {
+        if (renderPool == null) {
+            for (ClassModel cModel : cModelsPaged) {
+                progress.checkCanceled();
+                String page = renderClassPage(renderBuffer.get(), cModel, projectDetail, hostedSourceURL, links);
+                progress.worked(1);
+                addClassPage(mapFNameToContent, cModel, page);
+            }
+        } else {
+            int cThreads = renderPool.getParallelism();
+            int cBatch = pageQueue != null ? Math.max(streamCapacity, cThreads) : cModelsPaged.size();
+            for (int iStart = 0; iStart < cModelsPaged.size(); iStart += cBatch) {
+                int iEnd = Math.min(iStart + cBatch, cModelsPaged.size());
+                String[] pages = new String[iEnd - iStart];
+                renderPool.invoke(new RenderTask(cModelsPaged, iStart, iEnd, pages, iStart, projectDetail,
+                        hostedSourceURL, links));
+                // a canceled task leaves its pages unrendered
+                progress.checkCanceled();
+                for (int i = iStart; i < iEnd; i++)
+                    addClassPage(mapFNameToContent, cModelsPaged.get(i), pages[i - iStart]);
             }
-            contents += "</div>";
-
-            contents = Constants.getHeader(projectDetail) + contents + Constants.FOOTER;
-            mapFNameToContent.put(fileName, contents);
-            if (monitor != null)
-                monitor.worked(1);
         }
-        writeFiles(mapFNameToContent, monitor);
+        timer.stop(PhaseTimer.Phase.RENDER);
+        writeFiles(mapFNameToContent);
     }
 
-    private void createMarkdownFiles(ArrayList<ClassModel> cModels, String projectDetail, String hostedSourceURL, IProgressMonitor monitor, String links, TreeMap<String, String> mapFNameToContent) {
-        String fileName;
-        for (ClassModel cModel : cModels) {
-            String contents = "";
-            if (cModel.getNameLine() != null && cModel.getNameLine().length() > 0) {
-                fileName = cModel.getClassName();
+    // each rendering thread reuses one buffer for its pages, so it only grows to the size of the largest page
+    private static final ThreadLocal<StringBuilder> renderBuffer = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(8192);
+        }
+    };
 
-                contents += markdownForClassModel(cModel, hostedSourceURL);
+    private void addClassPage(TreeMap<String, String> mapFNameToContent, ClassModel cModel, String contents) {
+        // a null page is already up to date, so it isn't written
+        if (contents != null)
+            putPage(mapFNameToContent, cModel.getClassName(), contents);
+        else
+            progress.worked(1);
+    }
 
-                // deal with any nested classes
-                for (ClassModel cmChild : cModel.getChildClassesSorted()) {
-                    contents += "<p/>";
-                    contents += markdownForClassModel(cmChild, hostedSourceURL);
-                }
+    /********************************************************************************************
+     * @description renders the page for a class and its nested classes, in the
+     *              output format.
+     * @param contents
+     *            buffer to render into, cleared first
+     * @param cModel
+     * @param projectDetail
+     * @param hostedSourceURL
+     * @param links
+     * @return the page, or null if the page on disk is already up to date
+     */
+    private String renderClassPage(StringBuilder contents, ClassModel cModel, String projectDetail,
+                                   String hostedSourceURL, String links) {
+        if (manifest != null && isPageCurrent(cModel.getClassName(), OutputManifest.fingerprint(cModel)))
+            return null;
+
+        Object event = PhaseTimer.beginRender();
+        long start = System.nanoTime();
+        contents.setLength(0);
+        if (outputFormat == OutputType.HTML) {
+            contents.append(Constants.getHeader(projectDetail));
+            contents.append(links);
+            contents.append("<td class='contentTD'>");
+
+            htmlForClassModel(contents, cModel, hostedSourceURL);
+
+            // deal with any nested classes
+            for (ClassModel cmChild : cModel.getChildClassesSorted()) {
+                contents.append("<p/>");
+                htmlForClassModel(contents, cmChild, hostedSourceURL);
+            }
+            contents.append("</div>");
 
-            } else {
-                continue;
+            contents.append(Constants.FOOTER);
+        } else {
+            markdownForClassModel(contents, cModel, hostedSourceURL);
+
+            // deal with any nested classes
+            for (ClassModel cmChild : cModel.getChildClassesSorted()) {
+                contents.append("<p/>");
+                markdownForClassModel(contents, cmChild, hostedSourceURL);
             }
-            //contents += "</div>";
+        }
+        String page = contents.toString();
+        if (stats != null)
+            stats.rendered(cModel.getClassName(), System.nanoTime() - start);
+        PhaseTimer.endRender(event, cModel.getClassName(), contents.length());
+        return page;
+    }
 
-            //contents = Constants.getHeader(projectDetail) + contents + Constants.FOOTER;
-            mapFNameToContent.put(fileName, contents);
-            if (monitor != null)
-                monitor.worked(1);
+    /********************************************************************************************
+     * @description renders a range of class pages, splitting the range in half
+     *              until each task has a single class, so idle threads can steal
+     *              the remaining halves.
+     */
+    private class RenderTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ArrayList<ClassModel> cModels;
+        private final int iStart;
+        private final int iEnd;
+        private final String[] pages;
+        private final int iPageBase;
+        private final String projectDetail;
+        private final String hostedSourceURL;
+        private final String links;
+
+        RenderTask(ArrayList<ClassModel> cModels, int iStart, int iEnd, String[] pages, int iPageBase,
+                   String projectDetail, String hostedSourceURL, String links) {
+            this.cModels = cModels;
+            this.iStart = iStart;
+            this.iEnd = iEnd;
+            this.pages = pages;
+            this.iPageBase = iPageBase;
+            this.projectDetail = projectDetail;
+            this.hostedSourceURL = hostedSourceURL;
+            this.links = links;
+        }
+
+        @Override
+        protected void compute() {
+            if (progress.isCanceled())
+                return;
+            if (iEnd - iStart == 1) {
+                pages[iStart - iPageBase] = renderClassPage(renderBuffer.get(), cModels.get(iStart),
+                        projectDetail, hostedSourceURL, links);
+                progress.worked(1);
+                return;
+            }
+            int iMid = (iStart + iEnd) >>> 1;
+            invokeAll(new RenderTask(cModels, iStart, iMid, pages, iPageBase, projectDetail, hostedSourceURL, links),
+                    new RenderTask(cModels, iMid, iEnd, pages, iPageBase, projectDetail, hostedSourceURL, links));
         }
-        writeFiles(mapFNameToContent, monitor);
     }
 
+    // splits a @param value into the parameter's name and its description
+    private static final Pattern PARAM_NAME_END = Pattern.compile("\\s");
 
     /*********************************************************************************************
-     * @description creates the Markdown content for the provided class, including its
+     * @description appends the Markdown content for the provided class, including its
      *              property and methods
+     * @param contents
+     *            the page being built
      * @param cModel
      * @param hostedSourceURL
-     * @return markdown string
      */
-    private String markdownForClassModel(ClassModel cModel, String hostedSourceURL){
+    private void markdownForClassModel(StringBuilder contents, ClassModel cModel, String hostedSourceURL){
         String mdBreak = "  " + "\n";
         String mdTableOpen = "| Name | Description |" + mdBreak + "|:-|:-|" + mdBreak;
         String mdHR = "\n\n---\n";
         String mdPreOpen = "``` Java\n"; // Preformatted code
         String mdPreClose = "\n```\n";
         String mdTOC = "\n[[_TOC_]]\n";
-        String contents = "";
 
         // Class Header
-        contents += "# " + cModel.getClassName() + mdBreak;
+        contents.append("# ").append(cModel.getClassName()).append(mdBreak);
 
-        if(cModel.getDeprecated() != ""){
-            contents += "<font color='Red'>" + "Deprecated: " + escapeHTML(cModel.getDeprecated()) + "</font>";
-            contents += mdBreak + mdBreak;
+        if(cModel.getDeprecated().length() > 0){
+            contents.append("<font color='Red'>").append("Deprecated: ");
+            escapeHTML(contents, cModel.getDeprecated());
+            contents.append("</font>");
+            contents.append(mdBreak).append(mdBreak);
         }
 
-        if (cModel.getDescription() != "")
-            contents += "" + cModel.getDescription() + mdBreak + mdBreak;
+        if (cModel.getDescription().length() > 0)
+            contents.append(cModel.getDescription()).append(mdBreak).append(mdBreak);
 
-        if (cModel.getAuthor() != "")
-            contents += "Author: " + cModel.getAuthor() + mdBreak;
+        if (cModel.getAuthor().length() > 0)
+            contents.append("Author: ").append(cModel.getAuthor()).append(mdBreak);
 
-        if (cModel.getDate() != "")
-            contents += "Date: " + cModel.getDate() + mdBreak;
+        if (cModel.getDate().length() > 0)
+            contents.append("Date: ").append(cModel.getDate()).append(mdBreak);
 
-        contents += mdBreak;
+        contents.append(mdBreak);
 
         // not quite ready for this, yet
         //contents += mdTOC;
@@ -252,69 +595,72 @@ public class FileManager {
         // full name line as link
         //contents += strLinkfromModel(cModel, cModel.getTopmostClassName(), hostedSourceURL) +
         //        escapeHTML(cModel.getNameLine()) + "</a>" + mdBreak;
-        contents += mdPreOpen + cModel.getNameLine() + mdPreClose;
+        contents.append(mdPreOpen).append(cModel.getNameLine()).append(mdPreClose);
 
         if (cModel.getProperties().size() > 0) {
             // start Properties
-            contents += "## Properties" + mdBreak;
-            contents += mdTableOpen;
+            contents.append("## Properties").append(mdBreak);
+            contents.append(mdTableOpen);
 
             for (PropertyModel prop : cModel.getPropertiesSorted()) {
-                contents += "" + prop.getScope() + "" +
-                        prop.getPropertyName() + "";
-                contents += "" +
-                        strLinkfromModel(prop, cModel.getTopmostClassName(), hostedSourceURL) +
-                        escapeHTML(prop.getNameLine()) + "</a>";
-                contents += " | " + escapeHTML(prop.getDescription()) + "";
+                contents.append(prop.getScope()).append(prop.getPropertyName());
+                appendLinkfromModel(contents, prop, cModel.getTopmostClassName(), hostedSourceURL);
+                escapeHTML(contents, prop.getNameLine());
+                contents.append("</a>");
+                contents.append(" | ");
+                escapeHTML(contents, prop.getDescription());
             }
         }// end Properties
 
         if (cModel.getMethods().size() > 0) {
             // start Methods
-            contents += "## Methods";
-            contents += mdBreak;
+            contents.append("## Methods");
+            contents.append(mdBreak);
 
             // method Table of Contents (TOC)
-            contents += mdTableOpen;
+            contents.append(mdTableOpen);
             for (MethodModel method : cModel.getMethodsSorted()) {
-                contents += "" + method.getScope() + " ";
+                contents.append(method.getScope()).append(" ");
                 //contents += "<a href='#" + method.getMethodName() + "'>" + method.getMethodName() + "</a>";
-                contents += method.getMethodName();
-                contents += " | ";
-                if (method.getDescription() != "")
-                    contents += "" + method.getDescription() + "";
-                contents += mdBreak;
+                contents.append(method.getMethodName());
+                contents.append(" | ");
+                if (method.getDescription().length() > 0)
+                    contents.append(method.getDescription());
+                contents.append(mdBreak);
             }
 
             // full method display
             for (MethodModel method : cModel.getMethodsSorted()) {
-                contents += mdHR;
-                contents += "## " + method.getMethodName() + mdBreak;
-
-                if(method.getDeprecated() != ""){
-                    contents += "<font color='Red'>" + "Deprecated: " + escapeHTML(method.getDeprecated()) + "</font>";
-                    contents += mdBreak;
+                contents.append(mdHR);
+                contents.append("## ").append(method.getMethodName()).append(mdBreak);
+
+                if(method.getDeprecated().length() > 0){
+                    contents.append("<font color='Red'>").append("Deprecated: ");
+                    escapeHTML(contents, method.getDeprecated());
+                    contents.append("</font>");
+                    contents.append(mdBreak);
                 }
 
-                contents += mdBreak;
+                contents.append(mdBreak);
 
-                if (method.getDescription() != "")
-                    contents += "" + escapeHTML(method.getDescription()) + mdBreak;
+                if (method.getDescription().length() > 0) {
+                    escapeHTML(contents, method.getDescription());
+                    contents.append(mdBreak);
+                }
 
                 //contents += strLinkfromModel(method, cModel.getTopmostClassName(), hostedSourceURL) +
                 //        escapeHTML(method.getNameLine()) + "</a>";
-                contents += mdPreOpen + cModel.getNameLine() + mdPreClose;
+                contents.append(mdPreOpen).append(cModel.getNameLine()).append(mdPreClose);
 
-                contents += mdBreak;
+                contents.append(mdBreak);
 
                 if (method.getParams().size() > 0) {
-                    contents += "### Parameters" + mdBreak;
-                    contents += mdTableOpen;
+                    contents.append("### Parameters").append(mdBreak);
+                    contents.append(mdTableOpen);
                     for (String param : method.getParams()) {
                         param = escapeHTML(param);
                         if (param != null && param.trim().length() > 0) {
-                            Pattern p = Pattern.compile("\\s");
-                            Matcher m = p.matcher(param);
+                            Matcher m = PARAM_NAME_END.matcher(param);
 
                             String paramName;
                             String paramDescription;
@@ -326,150 +672,170 @@ public class FileManager {
                                 paramName = param;
                                 paramDescription = null;
                             }
-                            contents += "" + paramName + " | ";
+                            contents.append(paramName).append(" | ");
 
                             if (paramDescription != null)
-                                contents += "" + paramDescription;
+                                contents.append(paramDescription);
 
-                            contents += mdBreak;
+                            contents.append(mdBreak);
                         }
                     }
                     // end Parameters
                 }
 
-                if (method.getReturns() != "") {
-                    contents += "### Return Value" + mdBreak;
-                    contents += "" + escapeHTML(method.getReturns()) + mdBreak;
+                if (method.getReturns().length() > 0) {
+                    contents.append("### Return Value").append(mdBreak);
+                    escapeHTML(contents, method.getReturns());
+                    contents.append(mdBreak);
                 }
 
-                if (method.getExample() != "") {
-                    contents += "### Example" + mdBreak;
-                    contents += "<code class='methodExample'>" + escapeHTML(method.getExample()) + "</code>";
+                if (method.getExample().length() > 0) {
+                    contents.append("### Example").append(mdBreak);
+                    contents.append("<code class='methodExample'>");
+                    escapeHTML(contents, method.getExample());
+                    contents.append("</code>");
                 }
 
-                if (method.getAuthor() != "") {
-                    contents += "## Author" + mdBreak;
-                    contents += "" + escapeHTML(method.getAuthor()) + mdBreak;
+                if (method.getAuthor().length() > 0) {
+                    contents.append("## Author").append(mdBreak);
+                    escapeHTML(contents, method.getAuthor());
+                    contents.append(mdBreak);
                 }
 
                 if (method.getExceptionList().size() > 0) {
-                    contents += "### Exceptions" + mdBreak;
+                    contents.append("### Exceptions").append(mdBreak);
                     for(String except : method.getExceptionList()){
-                        contents += "<div class='methodReturns'>" + escapeHTML(except) + mdBreak;
+                        contents.append("<div class='methodReturns'>");
+                        escapeHTML(contents, except);
+                        contents.append(mdBreak);
                     }
                 }
 
-                if (method.getDate() != "") {
-                    contents += "### Date" + mdBreak;
-                    contents += "" + escapeHTML(method.getDate()) + mdBreak;
+                if (method.getDate().length() > 0) {
+                    contents.append("### Date").append(mdBreak);
+                    escapeHTML(contents, method.getDate());
+                    contents.append(mdBreak);
                 }
 
                 // end current method
                 //contents += mdBreak;
             }
             // end all methods
-            contents += mdBreak;
+            contents.append(mdBreak);
         }
-
-        return contents;
     }
 
     /*********************************************************************************************
-     * @description creates the HTML for the provided class, including its
+     * @description appends the HTML for the provided class, including its
      *              property and methods
+     * @param contents
+     *            the page being built
      * @param cModel
      * @param hostedSourceURL
-     * @return html string
      */
-    private String htmlForClassModel(ClassModel cModel, String hostedSourceURL) {
-        String contents = "";
-        contents += "<h2 class='section-title'>" +
-                strLinkfromModel(cModel, cModel.getTopmostClassName(), hostedSourceURL) +
-                cModel.getClassName() + "</a>" +
-                "</h2>";
-
-        contents += "<div class='classSignature'>" +
-                strLinkfromModel(cModel, cModel.getTopmostClassName(), hostedSourceURL) +
-                escapeHTML(cModel.getNameLine()) + "</a></div>";
-
-        contents += "<div class='classDetails'>";
-
-        if(cModel.getDeprecated() != ""){
-            contents +="<span class='warning'>Deprecated</span>: " + escapeHTML(cModel.getDeprecated()) + "<br><br/>";
+    private void htmlForClassModel(StringBuilder contents, ClassModel cModel, String hostedSourceURL) {
+        contents.append("<h2 class='section-title'>");
+        appendLinkfromModel(contents, cModel, cModel.getTopmostClassName(), hostedSourceURL);
+        contents.append(cModel.getClassName()).append("</a>").append("</h2>");
+
+        contents.append("<div class='classSignature'>");
+        appendLinkfromModel(contents, cModel, cModel.getTopmostClassName(), hostedSourceURL);
+        escapeHTML(contents, cModel.getNameLine());
+        contents.append("</a></div>");
+
+        contents.append("<div class='classDetails'>");
+
+        if(cModel.getDeprecated().length() > 0){
+            contents.append("<span class='warning'>Deprecated</span>: ");
+            escapeHTML(contents, cModel.getDeprecated());
+            contents.append("<br><br/>");
         }
 
-        if (cModel.getDescription() != "")
-            contents += "" + escapeHTML(cModel.getDescription()) + "<br><br>";
+        if (cModel.getDescription().length() > 0) {
+            escapeHTML(contents, cModel.getDescription());
+            contents.append("<br><br>");
+        }
 
-        if (cModel.getAuthor() != "")
-            contents += "Author: " + escapeHTML(cModel.getAuthor()) + "<br>";
+        if (cModel.getAuthor().length() > 0) {
+            contents.append("Author: ");
+            escapeHTML(contents, cModel.getAuthor());
+            contents.append("<br>");
+        }
 
-        if (cModel.getDate() != "")
-            contents += "Date: " + escapeHTML(cModel.getDate());
-        contents += "</div><p/>";
-        contents += "</div><p/>";
+        if (cModel.getDate().length() > 0) {
+            contents.append("Date: ");
+            escapeHTML(contents, cModel.getDate());
+        }
+        contents.append("</div><p/>");
+        contents.append("</div><p/>");
 
         if (cModel.getProperties().size() > 0) {
             // start Properties
-            contents +=
-                    "<h2 class='subsection-title'>Properties</h2>" +
-                            "<div class='subsection-container'> " +
-                            "<table class='properties' > ";
+            contents.append("<h2 class='subsection-title'>Properties</h2>" +
+                    "<div class='subsection-container'> " +
+                    "<table class='properties' > ");
 
             for (PropertyModel prop : cModel.getPropertiesSorted()) {
-                contents += "<tr class='propertyscope" + prop.getScope() + "'><td class='clsPropertyName'>" +
-                        prop.getPropertyName() + "</td>";
-                contents += "<td><div class='clsPropertyDeclaration'>" +
-                        strLinkfromModel(prop, cModel.getTopmostClassName(), hostedSourceURL) +
-                        escapeHTML(prop.getNameLine()) + "</a></div>";
-                contents += "<div class='clsPropertyDescription'>" + escapeHTML(prop.getDescription()) + "</div></tr>";
+                contents.append("<tr class='propertyscope").append(prop.getScope()).append("'><td class='clsPropertyName'>")
+                        .append(prop.getPropertyName()).append("</td>");
+                contents.append("<td><div class='clsPropertyDeclaration'>");
+                appendLinkfromModel(contents, prop, cModel.getTopmostClassName(), hostedSourceURL);
+                escapeHTML(contents, prop.getNameLine());
+                contents.append("</a></div>");
+                contents.append("<div class='clsPropertyDescription'>");
+                escapeHTML(contents, prop.getDescription());
+                contents.append("</div></tr>");
             }
             // end Properties
-            contents += "</table></div><p/>";
+            contents.append("</table></div><p/>");
         }
 
         if (cModel.getMethods().size() > 0) {
             // start Methods
-            contents +=
-                    "<h2 class='subsection-title'>Methods</h2>" +
-                            "<div class='subsection-container'> ";
+            contents.append("<h2 class='subsection-title'>Methods</h2>" +
+                    "<div class='subsection-container'> ");
 
             // method Table of Contents (TOC)
-            contents += "<ul class='methodTOC'>";
+            contents.append("<ul class='methodTOC'>");
             for (MethodModel method : cModel.getMethodsSorted()) {
-                contents += "<li class='methodscope" + method.getScope() + "' >";
-                contents += "<a class='methodTOCEntry' href='#" + method.getMethodName() + "'>"
-                        + method.getMethodName() + "</a>";
-                if (method.getDescription() != "")
-                    contents += "<div class='methodTOCDescription'>" + method.getDescription() + "</div>";
-                contents += "</li>";
+                contents.append("<li class='methodscope").append(method.getScope()).append("' >");
+                contents.append("<a class='methodTOCEntry' href='#").append(method.getMethodName()).append("'>")
+                        .append(method.getMethodName()).append("</a>");
+                if (method.getDescription().length() > 0)
+                    contents.append("<div class='methodTOCDescription'>").append(method.getDescription()).append("</div>");
+                contents.append("</li>");
             }
-            contents += "</ul>";
+            contents.append("</ul>");
 
             // full method display
             for (MethodModel method : cModel.getMethodsSorted()) {
-                contents += "<div class='methodscope" + method.getScope() + "' >";
-                contents += "<h2 class='methodHeader'><a id='" + method.getMethodName() + "'/>"
-                        + method.getMethodName() + "</h2>" +
-                        "<div class='methodSignature'>" +
-                        strLinkfromModel(method, cModel.getTopmostClassName(), hostedSourceURL) +
-                        escapeHTML(method.getNameLine()) + "</a></div>";
-
-                if(method.getDeprecated() != ""){
-                    contents +="<div class='methodSubTitle warning'>Deprecated</div>";
-                    contents += "<div class='methodReturns'>" + escapeHTML(method.getDeprecated()) + "</div>";
+                contents.append("<div class='methodscope").append(method.getScope()).append("' >");
+                contents.append("<h2 class='methodHeader'><a id='").append(method.getMethodName()).append("'/>")
+                        .append(method.getMethodName()).append("</h2>")
+                        .append("<div class='methodSignature'>");
+                appendLinkfromModel(contents, method, cModel.getTopmostClassName(), hostedSourceURL);
+                escapeHTML(contents, method.getNameLine());
+                contents.append("</a></div>");
+
+                if(method.getDeprecated().length() > 0){
+                    contents.append("<div class='methodSubTitle warning'>Deprecated</div>");
+                    contents.append("<div class='methodReturns'>");
+                    escapeHTML(contents, method.getDeprecated());
+                    contents.append("</div>");
                 }
 
-                if (method.getDescription() != "")
-                    contents += "<div class='methodDescription'>" + escapeHTML(method.getDescription()) + "</div>";
+                if (method.getDescription().length() > 0) {
+                    contents.append("<div class='methodDescription'>");
+                    escapeHTML(contents, method.getDescription());
+                    contents.append("</div>");
+                }
 
                 if (method.getParams().size() > 0) {
-                    contents += "<div class='methodSubTitle'>Parameters</div>";
+                    contents.append("<div class='methodSubTitle'>Parameters</div>");
                     for (String param : method.getParams()) {
                         param = escapeHTML(param);
                         if (param != null && param.trim().length() > 0) {
-                            Pattern p = Pattern.compile("\\s");
-                            Matcher m = p.matcher(param);
+                            Matcher m = PARAM_NAME_END.matcher(param);
 
                             String paramName;
                             String paramDescription;
@@ -481,77 +847,103 @@ public class FileManager {
                                 paramName = param;
                                 paramDescription = null;
                             }
-                            contents += "<div class='paramName'>" + paramName + "</div>";
+                            contents.append("<div class='paramName'>").append(paramName).append("</div>");
 
                             if (paramDescription != null)
-                                contents += "<div class='paramDescription'>" + paramDescription + "</div>";
+                                contents.append("<div class='paramDescription'>").append(paramDescription).append("</div>");
                         }
                     }
                     // end Parameters
                 }
 
-                if (method.getReturns() != "") {
-                    contents += "<div class='methodSubTitle'>Return Value</div>";
-                    contents += "<div class='methodReturns'>" + escapeHTML(method.getReturns()) + "</div>";
+                if (method.getReturns().length() > 0) {
+                    contents.append("<div class='methodSubTitle'>Return Value</div>");
+                    contents.append("<div class='methodReturns'>");
+                    escapeHTML(contents, method.getReturns());
+                    contents.append("</div>");
                 }
 
-                if (method.getExample() != "") {
-                    contents += "<div class='methodSubTitle'>Example</div>";
-                    contents += "<code class='methodExample'>" + escapeHTML(method.getExample()) + "</code>";
+                if (method.getExample().length() > 0) {
+                    contents.append("<div class='methodSubTitle'>Example</div>");
+                    contents.append("<code class='methodExample'>");
+                    escapeHTML(contents, method.getExample());
+                    contents.append("</code>");
                 }
 
-                if (method.getAuthor() != "") {
-                    contents += "<div class='methodSubTitle'>Author</div>";
-                    contents += "<div class='methodReturns'>" + escapeHTML(method.getAuthor()) + "</div>";
+                if (method.getAuthor().length() > 0) {
+                    contents.append("<div class='methodSubTitle'>Author</div>");
+                    contents.append("<div class='methodReturns'>");
+                    escapeHTML(contents, method.getAuthor());
+                    contents.append("</div>");
                 }
 
                 if (method.getExceptionList().size() > 0) {
-                    contents += "<div class='methodSubTitle'>Exceptions</div>";
+                    contents.append("<div class='methodSubTitle'>Exceptions</div>");
                     for(String except : method.getExceptionList()){
-                        contents += "<div class='methodReturns'>" + escapeHTML(except) + "</div>";
+                        contents.append("<div class='methodReturns'>");
+                        escapeHTML(contents, except);
+                        contents.append("</div>");
                     }
                 }
 
-                if (method.getDate() != "") {
-                    contents += "<div class='methodSubTitle'>Date</div>";
-                    contents += "<div class='methodReturns'>" + escapeHTML(method.getDate()) + "</div>";
+                if (method.getDate().length() > 0) {
+                    contents.append("<div class='methodSubTitle'>Date</div>");
+                    contents.append("<div class='methodReturns'>");
+                    escapeHTML(contents, method.getDate());
+                    contents.append("</div>");
                 }
 
                 // end current method
-                contents += "</div>";
+                contents.append("</div>");
             }
             // end all methods
-            contents += "</div>";
+            contents.append("</div>");
         }
-
-        return contents;
     }
 
     // create our Class Group content files
     private void createClassGroupContent(TreeMap<String, String> mapFNameToContent, String links, String projectDetail,
                                          TreeMap<String, ClassGroup> mapGroupNameToClassGroup,
-                                         ArrayList<ClassModel> cModels, IProgressMonitor monitor) {
+                                         ArrayList<ClassModel> cModels) {
 
         for (String strGroup : mapGroupNameToClassGroup.keySet()) {
             ClassGroup cg = mapGroupNameToClassGroup.get(strGroup);
             if (cg.getContentSource() != null) {
                 String cgContent = parseHTMLFile(cg.getContentSource());
-                if (cgContent != "") {
-                    String strHtml = Constants.getHeader(projectDetail) + links + "<td class='contentTD'>" +
-                            "<h2 class='section-title'>" +
-                            escapeHTML(cg.getName()) + "</h2>" + cgContent + "</td>";
-                    strHtml += Constants.FOOTER;
-                    mapFNameToContent.put(cg.getContentFilename(), strHtml);
-                    if (monitor != null)
-                        monitor.worked(1);
+                // a group without content, or whose page is up to date, has nothing to render or write
+                if (cgContent.length() == 0 ||
+                        isPageCurrent(cg.getContentFilename(), OutputManifest.fingerprint(cg.getName(), cgContent))) {
+                    progress.worked(2);
+                    continue;
                 }
+                putPage(mapFNameToContent, cg.getContentFilename(), getGroupPage(links, projectDetail, cg, cgContent));
+                progress.worked(1);
             }
         }
     }
 
     /**********************************************************************************************************
-     * @description generate the HTML string for the Class Menu to display on
-     *              each page.
+     * @description generate the HTML string for the sidebar cell on each page.
+     *              When the navigation is shared, the cell is left empty, and
+     *              ApexDoc.js loads the Class Menu into it from NAV_FILE.
+     * @param navigation
+     *            the Class Menu, from getNavigation()
+     * @return String of HTML
+     */
+    private String getPageLinks(String navigation) {
+        String links = "<td width='20%' vertical-align='top' >";
+        if (sharedNav)
+            links += "<div class='sidebar'><div class='navbar' id='apexdocnav' data-src='" + NAV_FILE + ".html'>";
+        else
+            links += "<div class='sidebar'><div class='navbar'>" + navigation;
+        links += "</div></div></div>";
+
+        links += "</td>";
+        return links;
+    }
+
+    /**********************************************************************************************************
+     * @description generate the HTML string for the Class Menu.
      * @param mapGroupNameToClassGroup
      *            map that holds all the Class names, and their respective Class
      *            Group.
@@ -559,7 +951,7 @@ public class FileManager {
      *            list of ClassModels
      * @return String of HTML
      */
-    private String getPageLinks(TreeMap<String, ClassGroup> mapGroupNameToClassGroup, ArrayList<ClassModel> cModels) {
+    private String getNavigation(TreeMap<String, ClassGroup> mapGroupNameToClassGroup, ArrayList<ClassModel> cModels) {
         boolean createMiscellaneousGroup = false;
 
         // this is the only place we need the list of class models sorted by name.
@@ -571,9 +963,9 @@ public class FileManager {
         }
         cModels = new ArrayList<ClassModel>(tm.values());
 
-        String links = "<td width='20%' vertical-align='top' >";
-        links += "<div class='sidebar'><div class='navbar'><nav role='navigation'><ul id='mynavbar'>";
-        links += "<li id='idMenuindex'><a href='.' onclick=\"gotomenu('index.html', event);return false;\" class='nav-item'>Home</a></li>";
+        StringBuilder links = new StringBuilder();
+        links.append("<nav role='navigation'><ul id='mynavbar'>");
+        links.append("<li id='idMenuindex'><a href='.' onclick=\"gotomenu('index.html', event);return false;\" class='nav-item'>Home</a></li>");
 
         // add a bucket ClassGroup for all Classes without a ClassGroup specified
         if (createMiscellaneousGroup)
@@ -586,108 +978,199 @@ public class FileManager {
             String strGoTo = "onclick=\"gotomenu(document.location.href, event);return false;\"";
             if (cg.getContentFilename() != null)
                 strGoTo = "onclick=\"gotomenu('" + cg.getContentFilename() + ".html" + "', event);return false;\"";
-            links += "<li class='header' id='idMenu" + cg.getContentFilename() +
-                    "'><a class='nav-item nav-section-title' href='.' " +
-                    strGoTo + " class='nav-item'>" + strGroup + "<span class='caret'></span></a></li>";
-            links += "<ul>";
+            links.append("<li class='header' id='idMenu").append(cg.getContentFilename())
+                    .append("'><a class='nav-item nav-section-title' href='.' ")
+                    .append(strGoTo).append(" class='nav-item'>").append(strGroup).append("<span class='caret'></span></a></li>");
+            links.append("<ul>");
 
             // even though this algorithm is O(n^2), it was timed at just 12
             // milliseconds, so not an issue!
             for (ClassModel cModel : cModels) {
                 if (strGroup.equals(cModel.getClassGroup())
-                        || (cModel.getClassGroup() == null && strGroup == "Miscellaneous")) {
+                        || (cModel.getClassGroup() == null && strGroup.equals("Miscellaneous"))) {
                     if (cModel.getNameLine() != null && cModel.getNameLine().trim().length() > 0) {
                         String fileName = cModel.getClassName();
-                        links += "<li class='subitem classscope" + cModel.getScope() + "' id='idMenu" + fileName +
-                                "'><a href='.' onclick=\"gotomenu('" + fileName + ".html', event);return false;\" class='nav-item sub-nav-item scope" +
-                                cModel.getScope() + "'>" +
-                                fileName + "</a></li>";
+                        links.append("<li class='subitem classscope").append(cModel.getScope()).append("' id='idMenu").append(fileName)
+                                .append("'><a href='.' onclick=\"gotomenu('").append(fileName).append(".html', event);return false;\" class='nav-item sub-nav-item scope")
+                                .append(cModel.getScope()).append("'>")
+                                .append(fileName).append("</a></li>");
                     }
                 }
             }
 
-            links += "</ul>";
+            links.append("</ul>");
         }
 
-        links += "</ul></nav></div></div></div>";
-
-        links += "</td>";
-        return links;
+        links.append("</ul></nav>");
+        return links.toString();
     }
 
-    private void docopy(String source, String target) throws Exception {
+    // the files the pages use, copied next to them from the jar
+    static final String[] ASSETS = { "apex_doc_logo.png", "ApexDoc.css", "ApexDoc.js", "CollapsibleList.js",
+            "jquery-1.11.1.js", "toggle_block_btm.gif", "toggle_block_stretch.gif" };
 
-        InputStream is = this.getClass().getResourceAsStream(source);
-        // InputStreamReader isr = new InputStreamReader(is);
-        // BufferedReader reader = new BufferedReader(isr);
-        FileOutputStream to = new FileOutputStream(target + "/" + source);
+    /********************************************************************************************
+     * @description reads one of the ASSETS from the jar.
+     * @param source
+     * @return the file's bytes
+     * @throws IOException
+     */
+    static byte[] readAsset(String source) throws IOException {
+        InputStream is = FileManager.class.getResourceAsStream(source);
+        ByteArrayOutputStream resource = new ByteArrayOutputStream();
 
         byte[] buffer = new byte[4096];
         int bytesRead;
 
         while ((bytesRead = is.read(buffer)) != -1) {
-            to.write(buffer, 0, bytesRead); // write
+            resource.write(buffer, 0, bytesRead);
+        }
+        is.close();
+        return resource.toByteArray();
+    }
+
+    private void docopy(String source, String target) throws Exception {
+        byte[] resource = readAsset(source);
+
+        if (pageSink != null) {
+            pageSink.page(source, resource);
+            return;
         }
 
+        // leave an identical file alone, so its timestamp doesn't change
+        File file = new File(target + "/" + source);
+        if (file.isFile() && file.length() == resource.length &&
+                Arrays.equals(Files.readAllBytes(file.toPath()), resource))
+            return;
+
+        FileOutputStream to = new FileOutputStream(file);
+        to.write(resource);
         to.flush();
         to.close();
-        is.close();
     }
 
     private void copy(String toFileName) throws IOException, Exception {
-        docopy("apex_doc_logo.png", toFileName);
-        docopy("ApexDoc.css", toFileName);
-        docopy("ApexDoc.js", toFileName);
-        docopy("CollapsibleList.js", toFileName);
-        docopy("jquery-1.11.1.js", toFileName);
-        docopy("toggle_block_btm.gif", toFileName);
-        docopy("toggle_block_stretch.gif", toFileName);
-
-    }
-
-    public ArrayList<File> getFiles(String path) {
-        File folder = new File(path);
-        ArrayList<File> listOfFilesToCopy = new ArrayList<File>();
-        if (folder != null) {
-            File[] listOfFiles = folder.listFiles();
-            if (listOfFiles != null && listOfFiles.length > 0) {
-                for (int i = 0; i < listOfFiles.length; i++) {
-                    if (listOfFiles[i].isFile()) {
-                        listOfFilesToCopy.add(listOfFiles[i]);
-                    }
-                }
-            } else {
-                System.out.println("WARNING: No files found in directory: " + path);
-            }
-        }
-        return listOfFilesToCopy;
+        for (String asset : ASSETS)
+            docopy(asset, toFileName);
     }
 
     public void createDoc(TreeMap<String, ClassGroup> mapGroupNameToClassGroup, ArrayList<ClassModel> cModels,
                           String projectDetail, String homeContents, String hostedSourceURL, IProgressMonitor monitor) {
-        makeFile(mapGroupNameToClassGroup, cModels, projectDetail, homeContents, hostedSourceURL, monitor);
+        if (monitor != null)
+            setProgress(new RunProgress(monitor));
+        makeFile(mapGroupNameToClassGroup, cModels, projectDetail, homeContents, hostedSourceURL);
+    }
+
+    /********************************************************************************************
+     * @description prepares the documentation to be rendered a page at a time,
+     *              as the pages are asked for, rather than all written at once.
+     * @param mapGroupNameToClassGroup
+     * @param cModels
+     * @param projectDetail
+     * @param homeContents
+     * @param hostedSourceURL
+     * @return Site
+     */
+    public Site openSite(TreeMap<String, ClassGroup> mapGroupNameToClassGroup, ArrayList<ClassModel> cModels,
+                         String projectDetail, String homeContents, String hostedSourceURL) {
+        return new Site(mapGroupNameToClassGroup, cModels, projectDetail, homeContents, hostedSourceURL);
+    }
+
+    /********************************************************************************************
+     * @description the documentation, rendered one page at a time, for the
+     *              -serve mode. The Class Menu, links and home page are built
+     *              once, and any page is rendered the same as it would be
+     *              written. render may be called from any number of threads.
+     */
+    public class Site {
+        private final String projectDetail;
+        private final String hostedSourceURL;
+        private final String navigation;
+        private final String links;
+        private final String homePage;
+        private final TreeMap<String, ClassModel> mapNameToModel = new TreeMap<String, ClassModel>();
+        private final TreeMap<String, ClassGroup> mapNameToGroup = new TreeMap<String, ClassGroup>();
+
+        private Site(TreeMap<String, ClassGroup> mapGroupNameToClassGroup, ArrayList<ClassModel> cModels,
+                     String projectDetail, String homeContents, String hostedSourceURL) {
+            this.projectDetail = projectDetail;
+            this.hostedSourceURL = hostedSourceURL;
+            timer.start(PhaseTimer.Phase.SIDEBAR);
+            this.navigation = getNavigation(mapGroupNameToClassGroup, cModels);
+            this.links = getLinks(navigation);
+            timer.stop(PhaseTimer.Phase.SIDEBAR, cModels.size());
+            this.homePage = getHomePage(links, projectDetail, homeContents);
+            for (ClassModel cModel : cModels) {
+                if (cModel.getNameLine() != null && cModel.getNameLine().length() > 0)
+                    mapNameToModel.put(cModel.getClassName(), cModel);
+            }
+            for (ClassGroup cg : mapGroupNameToClassGroup.values()) {
+                if (cg.getContentSource() != null)
+                    mapNameToGroup.put(cg.getContentFilename(), cg);
+            }
+        }
+
+        // .html, or .md for markdown
+        public String getFileSuffix() {
+            return FileManager.this.getFileSuffix();
+        }
+
+        public int getClassCount() {
+            return mapNameToModel.size();
+        }
+
+        /********************************************************************************************
+         * @description renders a page.
+         * @param pageName
+         *            the page's file name, without the suffix
+         * @return the page, or null if there is no such page
+         */
+        public String render(String pageName) {
+            if (pageName.equals("index"))
+                return homePage;
+            if (pageName.equals(NAV_FILE))
+                return sharedNav && outputFormat == OutputType.HTML ? navigation : null;
+            ClassModel cModel = mapNameToModel.get(pageName);
+            if (cModel != null)
+                return renderClassPage(renderBuffer.get(), cModel, projectDetail, hostedSourceURL, links);
+            ClassGroup cg = mapNameToGroup.get(pageName);
+            if (cg != null) {
+                String cgContent = parseHTMLFile(cg.getContentSource());
+                if (cgContent.length() > 0)
+                    return getGroupPage(links, projectDetail, cg, cgContent);
+            }
+            return null;
+        }
     }
 
     private String parseFile(String filePath) {
         try {
             if (filePath != null && filePath.trim().length() > 0) {
-                FileInputStream fstream = new FileInputStream(filePath);
-                // Get the object of DataInputStream
-                DataInputStream in = new DataInputStream(fstream);
-                BufferedReader br = new BufferedReader(new InputStreamReader(in));
-                String contents = "";
+                BufferedReader br;
+                if (sources != null) {
+                    CharSequence source = sources.get(filePath);
+                    if (source == null)
+                        return "";
+                    br = new BufferedReader(new StringReader(source.toString()));
+                } else {
+                    FileInputStream fstream = new FileInputStream(filePath);
+                    // Get the object of DataInputStream
+                    DataInputStream in = new DataInputStream(fstream);
+                    br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                }
+                StringBuilder contents = new StringBuilder();
                 String strLine;
 
                 while ((strLine = br.readLine()) != null) {
                     // Print the content on the console
                     strLine = strLine.trim();
                     if (strLine != null && strLine.length() > 0) {
-                        contents += strLine;
+                        contents.append(strLine);
                     }
                 }
                 // System.out.println("Contents = " + contents);
                 br.close();
-                return contents;
+                return contents.toString();
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,152 @@
+package org.salesforce.apexdoc;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/*************************************************************************
+ * @description the Flight Recorder events ApexDoc records, in the ApexDoc
+ *              category. They are recorded when a recording is running, for
+ *              example with
+ *              java -XX:StartFlightRecording=filename=apexdoc.jfr -jar apexdoc.jar ...
+ *              and can be read with jfr print, or JDK Mission Control. This
+ *              class is only used when the JVM has Flight Recorder, so
+ *              ApexDoc still runs on JVMs without it, and the events are
+ *              passed around as Objects for the same reason.
+ */
+final class FlightRecorderEvents {
+
+    private FlightRecorderEvents() {
+    }
+
+    // true once a recording has been started, at launch or later with jcmd
+    static boolean isRecording() {
+        return FlightRecorder.isInitialized();
+    }
+
+    @Name("org.salesforce.apexdoc.Phase")
+    @Label("ApexDoc Phase")
+    @Category("ApexDoc")
+    @Description("A phase of a run, such as parsing or writing")
+    static class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Items")
+        long items;
+    }
+
+    @Name("org.salesforce.apexdoc.ParseFile")
+    @Label("ApexDoc Parse File")
+    @Category("ApexDoc")
+    @Description("A class file parsed, or taken from the cache")
+    static class ParseFileEvent extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("org.salesforce.apexdoc.RenderPage")
+    @Label("ApexDoc Render Page")
+    @Category("ApexDoc")
+    @Description("A class page rendered")
+    static class RenderPageEvent extends Event {
+        @Label("Class")
+        String className;
+
+        @Label("Characters")
+        long characters;
+    }
+
+    @Name("org.salesforce.apexdoc.WritePage")
+    @Label("ApexDoc Write Page")
+    @Category("ApexDoc")
+    @Description("A page encoded and written, to a file or a page sink")
+    static class WritePageEvent extends Event {
+        @Label("Page")
+        String page;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+    }
+
+    static Object beginPhase() {
+        PhaseEvent event = new PhaseEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void endPhase(Object e, String phase, long items) {
+        PhaseEvent event = (PhaseEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = phase;
+            event.items = items;
+            event.commit();
+        }
+    }
+
+    static Object beginParse() {
+        ParseFileEvent event = new ParseFileEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void endParse(Object e, String source, long bytes) {
+        ParseFileEvent event = (ParseFileEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    static Object beginRender() {
+        RenderPageEvent event = new RenderPageEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void endRender(Object e, String className, long characters) {
+        RenderPageEvent event = (RenderPageEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.className = className;
+            event.characters = characters;
+            event.commit();
+        }
+    }
+
+    static Object beginWrite() {
+        WritePageEvent event = new WritePageEvent();
+        if (!event.isEnabled())
+            return null;
+        event.begin();
+        return event;
+    }
+
+    static void endWrite(Object e, String page, long bytes) {
+        WritePageEvent event = (WritePageEvent) e;
+        event.end();
+        if (event.shouldCommit()) {
+            event.page = page;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+}
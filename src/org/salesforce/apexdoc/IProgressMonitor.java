@@ -1,8 +1,80 @@
 package org.salesforce.apexdoc;
 
-public class IProgressMonitor {
+/*************************************************************************
+ * @description follows a documentation run, and can cancel it. A run is
+ *              measured in units of work: one for each class file parsed,
+ *              one each for the banner and home files, and one for each page
+ *              rendered and one for each page written, where a page that is
+ *              already up to date counts as both. The total given to
+ *              beginTask assumes every class file has a page; it is corrected
+ *              with setTotalWork once the pages are known.
+ *
+ *              ApexDoc never calls a monitor from two threads at once, but
+ *              it may call it from any of the run's threads. Every method
+ *              does nothing by default, so a monitor only implements what it
+ *              needs.
+ */
+public interface IProgressMonitor {
 
-    void worked(int work) {}
-    void beginTask(String name, int totalWork) {}
-    void done() {}
+    /*************************************************************************
+     * @description the run is starting.
+     * @param name
+     *            - what the run does
+     * @param totalWork
+     *            - the units of work the run is expected to take
+     */
+    default void beginTask(String name, int totalWork) {
+    }
+
+    /*************************************************************************
+     * @description the run's total is now known exactly.
+     * @param totalWork
+     */
+    default void setTotalWork(int totalWork) {
+    }
+
+    /*************************************************************************
+     * @description a phase of the run is starting, such as "Parsing class
+     *              files" or "Writing pages".
+     * @param name
+     */
+    default void subTask(String name) {
+    }
+
+    default void worked(int work) {
+    }
+
+    /*************************************************************************
+     * @description how far the run has got, called after worked, at most
+     *              every tenth of a second, and when the last unit of work is
+     *              done.
+     * @param workDone
+     *            - the units of work done so far
+     * @param totalWork
+     * @param workPerSecond
+     *            - the units done per second since the run started
+     * @param millisRemaining
+     *            - the time the rest of the run should take at that rate
+     */
+    default void progress(int workDone, int totalWork, double workPerSecond, long millisRemaining) {
+    }
+
+    /*************************************************************************
+     * @description asked before each class file is parsed and each page is
+     *              rendered or written. Once it returns true, the run stops
+     *              starting new work, drops the pages waiting to be written,
+     *              and throws a java.util.concurrent.CancellationException
+     *              from generate() or serve().
+     * @return true to cancel the run
+     */
+    default boolean isCanceled() {
+        return false;
+    }
+
+    /*************************************************************************
+     * @description the run has ended, whether it finished, failed or was
+     *              canceled.
+     */
+    default void done() {
+    }
 }
@@ -1,12 +1,17 @@
 package org.salesforce.apexdoc;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class MethodModel extends ApexModel {
 
+    // most methods have no exceptions, and many no params, so they share an empty list until one is added
+    private static final List<String> NONE = Collections.emptyList();
+
     public MethodModel() {
-        params = new ArrayList<String>();
-        exceptions = new ArrayList<String>();
+        params = NONE;
+        exceptions = NONE;
     }
 
     public void setNameLine(String nameLine, int iLine) {
@@ -17,29 +22,48 @@ public class MethodModel extends ApexModel {
                 nameLine = nameLine.substring(0, i + 1);
         }
         super.setNameLine(nameLine, iLine);
+        strMethodName = parseMethodName();
+    }
+
+    // read-only, like the lists of a ClassModel: they are changed through addParam and setParams
+    public List<String> getParams() {
+        return Collections.unmodifiableList(params);
     }
 
-    public ArrayList<String> getParams() {
-        return params;
+    public void addParam(String param) {
+        if (params == NONE)
+            params = new ArrayList<String>(2);
+        params.add(param);
     }
 
-    public ArrayList<String> getExceptionList() {
-        return exceptions;
+    public List<String> getExceptionList() {
+        return Collections.unmodifiableList(exceptions);
     }
 
-    public void setParams(ArrayList<String> params) {
-        this.params = params;
+    public void addException(String exception) {
+        if (exceptions == NONE)
+            exceptions = new ArrayList<String>(1);
+        exceptions.add(exception);
+    }
+
+    public void setParams(List<String> params) {
+        this.params = params.isEmpty() ? NONE : new ArrayList<String>(params);
     }
 
     public String getReturnType() {
-        return returnType;
+        return returnType == null ? "" : returnType;
     }
 
     public void setReturnType(String returnType) {
-        this.returnType = returnType;
+        this.returnType = intern(returnType);
     }
 
+    // worked out once, when the name line is set
     public String getMethodName() {
+        return strMethodName;
+    }
+
+    private String parseMethodName() {
         String nameLine = getNameLine().trim();
         if (nameLine != null && nameLine.length() > 0) {
             int lastindex = nameLine.indexOf("(");
@@ -51,8 +75,9 @@ public class MethodModel extends ApexModel {
         return "";
     }
 
-    private ArrayList<String> params;
-    private ArrayList<String> exceptions;
+    private List<String> params;
+    private List<String> exceptions;
     private String returnType;
+    private String strMethodName = "";
 
 }
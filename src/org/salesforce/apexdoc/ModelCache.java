@@ -0,0 +1,319 @@
+package org.salesforce.apexdoc;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*************************************************************************
+ * @description persistent cache of parsed ClassModels, kept in the target
+ *              directory between runs. Entries are keyed by a hash of the
+ *              class file's contents, the scopes being documented and
+ *              ApexDoc.PARSER_VERSION, so that models made by another
+ *              version of the parser aren't reused, and
+ *              hold the ClassModel tree (child classes, methods and
+ *              properties) in a compact binary form. Only the entries used
+ *              by a run are written back, so deleted classes drop out.
+ *              get and put may be called from several parser threads.
+ */
+public class ModelCache {
+
+    public static final String FILE_NAME = ".apexdoc-cache";
+
+    private static final int MAGIC = 0x41504443; // APDC
+    // the layout of the file. what the models in it mean is ApexDoc.PARSER_VERSION, in the keys
+    private static final int VERSION = 1;
+
+    private static final byte[] PARSER_KEY = ("parser " + ApexDoc.PARSER_VERSION + ";")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final File file;
+    private final byte[] scopeKey;
+    private final Map<String, byte[]> mapKeyToLoaded = new ConcurrentHashMap<String, byte[]>();
+    private final Map<String, byte[]> mapKeyToUsed = new ConcurrentHashMap<String, byte[]>();
+    private int hits;
+    private int misses;
+
+    private ModelCache(File file, ScopeMatcher scopes) {
+        this.file = file;
+        // the scopes as configured, not lowercased, since a model keeps the case of its scope
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < scopes.size(); i++)
+            sb.append(scopes.get(i)).append(';');
+        this.scopeKey = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /*************************************************************************
+     * @description loads the cache from the target directory. a missing or
+     *              unreadable cache file just gives an empty cache.
+     * @param targetDirectory
+     * @param scopes
+     * @return ModelCache
+     */
+    public static ModelCache load(String targetDirectory, ScopeMatcher scopes) {
+        if (targetDirectory == null || targetDirectory.trim().length() == 0)
+            targetDirectory = ".";
+        ModelCache cache = new ModelCache(new File(targetDirectory, FILE_NAME), scopes);
+        if (!cache.file.isFile())
+            return cache;
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(cache.file))));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return cache;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                byte[] entry = new byte[in.readInt()];
+                in.readFully(entry);
+                cache.mapKeyToLoaded.put(key, entry);
+            }
+        } catch (Exception e) {
+            System.out.println("WARNING: ignoring unreadable ApexDoc cache " + cache.file + ": " + e.getMessage());
+            cache.mapKeyToLoaded.clear();
+        } finally {
+            close(in);
+        }
+        return cache;
+    }
+
+    /*************************************************************************
+     * @description computes the cache key for the contents of a class file.
+     * @param contents
+     * @return hex string of the hash of the parser version, the scopes and
+     *         the contents
+     */
+    public String key(byte[] contents) {
+        MessageDigest md = OutputManifest.newDigest();
+        md.update(PARSER_KEY);
+        md.update(scopeKey);
+        md.update(contents);
+        return OutputManifest.hex(md.digest());
+    }
+
+    /*************************************************************************
+     * @description returns the cached ClassModel for a key.
+     * @param key
+     * @return a new ClassModel tree, or null if the key is not cached
+     */
+    public ClassModel get(String key) {
+        byte[] entry = mapKeyToLoaded.get(key);
+        if (entry == null) {
+            synchronized (this) {
+                misses++;
+            }
+            return null;
+        }
+        try {
+            ClassModel cModel = readClassModel(new DataInputStream(new ByteArrayInputStream(entry)), null);
+            mapKeyToUsed.put(key, entry);
+            synchronized (this) {
+                hits++;
+            }
+            return cModel;
+        } catch (IOException e) {
+            synchronized (this) {
+                misses++;
+            }
+            return null;
+        }
+    }
+
+    public void put(String key, ClassModel cModel) {
+        if (cModel == null)
+            return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeClassModel(out, cModel);
+            out.flush();
+            mapKeyToUsed.put(key, bytes.toByteArray());
+        } catch (IOException e) {
+            // can't happen writing to memory
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /*************************************************************************
+     * @description writes the entries used by this run back to the cache
+     *              file, replacing it.
+     */
+    public void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            File dir = file.getAbsoluteFile().getParentFile();
+            if (dir != null)
+                dir.mkdirs();
+            out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            ArrayList<Map.Entry<String, byte[]>> entries = new ArrayList<Map.Entry<String, byte[]>>(mapKeyToUsed.entrySet());
+            out.writeInt(entries.size());
+            for (Map.Entry<String, byte[]> entry : entries) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+            out.close();
+            out = null;
+            if (file.exists() && !file.delete())
+                throw new IOException("could not replace " + file);
+            if (!tmp.renameTo(file))
+                throw new IOException("could not rename " + tmp);
+        } catch (IOException e) {
+            System.out.println("WARNING: could not save ApexDoc cache " + file + ": " + e.getMessage());
+        } finally {
+            close(out);
+            tmp.delete();
+        }
+    }
+
+    /*************************************************************************
+     * @description writes a ClassModel, its methods, properties and child
+     *              classes.
+     * @param out
+     * @param cModel
+     * @throws IOException
+     */
+    static void writeClassModel(DataOutputStream out, ClassModel cModel) throws IOException {
+        writeApexModel(out, cModel);
+        writeString(out, cModel.getDeclaredClassGroup());
+        writeString(out, cModel.getClassGroupContent());
+        out.writeBoolean(cModel.getIsInterface());
+
+        out.writeInt(cModel.getProperties().size());
+        for (PropertyModel prop : cModel.getProperties())
+            writeApexModel(out, prop);
+
+        out.writeInt(cModel.getMethods().size());
+        for (MethodModel method : cModel.getMethods()) {
+            writeApexModel(out, method);
+            writeStrings(out, method.getParams());
+            writeStrings(out, method.getExceptionList());
+            writeString(out, method.getReturnType());
+        }
+
+        out.writeInt(cModel.getChildClasses().size());
+        for (ClassModel cmChild : cModel.getChildClasses())
+            writeClassModel(out, cmChild);
+    }
+
+    static ClassModel readClassModel(DataInputStream in, ClassModel cModelParent) throws IOException {
+        ClassModel cModel = new ClassModel(cModelParent);
+        readApexModel(in, cModel);
+        cModel.setClassGroup(readString(in));
+        cModel.setClassGroupContent(readString(in));
+        cModel.setIsInterface(in.readBoolean());
+
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            PropertyModel prop = new PropertyModel();
+            readApexModel(in, prop);
+            cModel.addProperty(prop);
+        }
+
+        count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            MethodModel method = new MethodModel();
+            readApexModel(in, method);
+            int cParams = in.readInt();
+            for (int j = 0; j < cParams; j++)
+                method.addParam(readString(in));
+            int cExceptions = in.readInt();
+            for (int j = 0; j < cExceptions; j++)
+                method.addException(readString(in));
+            method.setReturnType(readString(in));
+            cModel.addMethod(method);
+        }
+
+        count = in.readInt();
+        for (int i = 0; i < count; i++)
+            cModel.addChildClass(readClassModel(in, cModel));
+        return cModel;
+    }
+
+    private static void writeApexModel(DataOutputStream out, ApexModel model) throws IOException {
+        writeString(out, model.getNameLine());
+        out.writeInt(model.getInameLine());
+        writeString(out, model.getScope());
+        writeString(out, model.getDescription());
+        writeString(out, model.getAuthor());
+        writeString(out, model.getDate());
+        writeString(out, model.getReturns());
+        writeString(out, model.getExample());
+        writeString(out, model.getDeprecated());
+    }
+
+    private static void readApexModel(DataInputStream in, ApexModel model) throws IOException {
+        String nameLine = readString(in);
+        int iLine = in.readInt();
+        if (nameLine != null)
+            model.setNameLine(nameLine, iLine);
+        model.setScope(readString(in));
+        model.setDescription(readString(in));
+        model.setAuthor(readString(in));
+        model.setDate(readString(in));
+        model.setReturns(readString(in));
+        model.setExample(readString(in));
+        model.setDeprecated(readString(in));
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> list) throws IOException {
+        out.writeInt(list.size());
+        for (String str : list)
+            writeString(out, str);
+    }
+
+    // empty strings are stored as null, which the model getters hand back as "".
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null || str.length() == 0) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int cb = in.readInt();
+        if (cb < 0)
+            return null;
+        byte[] bytes = new byte[cb];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            if (closeable != null)
+                closeable.close();
+        } catch (IOException e) {
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.salesforce.apexdoc;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*************************************************************************
+ * @description keeps parsed ClassModels in memory between the runs of a long
+ *              running engine, such as the daemon, so a class file that
+ *              hasn't changed since the last run isn't read or parsed again.
+ *              Entries are keyed by the class file's path and the scopes
+ *              being documented, and are only used while the file's size and
+ *              modification time are the same as when it was parsed. Once
+ *              there are more models than the limit, the least recently used
+ *              are dropped. ClassModels aren't changed by generating their
+ *              pages, so runs share them. get and put may be called from
+ *              several parser threads.
+ */
+public class ModelMemory {
+
+    private final int maxModels;
+    private final LinkedHashMap<String, Remembered> mapKeyToEntry;
+
+    private static class Remembered {
+        final long lastModified;
+        final long length;
+        final ClassModel cModel;
+
+        Remembered(long lastModified, long length, ClassModel cModel) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.cModel = cModel;
+        }
+    }
+
+    /*************************************************************************
+     * @param maxModels
+     *            - the most class models kept
+     */
+    public ModelMemory(final int maxModels) {
+        this.maxModels = maxModels;
+        this.mapKeyToEntry = new LinkedHashMap<String, Remembered>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Remembered> eldest) {
+                return size() > ModelMemory.this.maxModels;
+            }
+        };
+    }
+
+    /*************************************************************************
+     * @description returns the model parsed from a class file, if the file is
+     *              unchanged since.
+     * @param file
+     * @param scopes
+     * @param lastModified
+     *            - the file's modification time, read before its contents
+     * @param length
+     *            - the file's size, read before its contents
+     * @return ClassModel, or null if the file must be parsed
+     */
+    public synchronized ClassModel get(File file, ScopeMatcher scopes, long lastModified, long length) {
+        Remembered remembered = mapKeyToEntry.get(key(file, scopes));
+        if (remembered == null || remembered.lastModified != lastModified || remembered.length != length)
+            return null;
+        return remembered.cModel;
+    }
+
+    /*************************************************************************
+     * @description keeps the model parsed from a class file.
+     * @param file
+     * @param scopes
+     * @param lastModified
+     *            - the file's modification time, read before its contents
+     * @param length
+     *            - the file's size, read before its contents
+     * @param cModel
+     */
+    public synchronized void put(File file, ScopeMatcher scopes, long lastModified, long length, ClassModel cModel) {
+        // a file whose time can't be read could change unnoticed
+        if (lastModified == 0)
+            return;
+        mapKeyToEntry.put(key(file, scopes), new Remembered(lastModified, length, cModel));
+    }
+
+    public synchronized int size() {
+        return mapKeyToEntry.size();
+    }
+
+    private static String key(File file, ScopeMatcher scopes) {
+        return file.getAbsolutePath() + '\n' + scopes;
+    }
+}
@@ -0,0 +1,161 @@
+package org.salesforce.apexdoc;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+/*************************************************************************
+ * @description records what each generated page was built from, so an
+ *              incremental run only re-renders and rewrites the pages whose
+ *              inputs changed. Each page maps to a fingerprint of its inputs:
+ *              the class model, the sidebar, the header and home contents,
+ *              and the settings that affect the output. The manifest is
+ *              kept in the target directory, next to the documentation
+ *              folder rather than inside it.
+ */
+public class OutputManifest {
+
+    public static final String FILE_NAME = ".apexdoc-manifest";
+
+    private final File file;
+    private final Properties previous = new Properties();
+    private final Properties current = new Properties();
+
+    private OutputManifest(File file) {
+        this.file = file;
+    }
+
+    /*************************************************************************
+     * @description loads the manifest from the target directory. a missing
+     *              or unreadable manifest means every page is rebuilt.
+     * @param targetDirectory
+     * @return OutputManifest
+     */
+    public static OutputManifest load(String targetDirectory) {
+        OutputManifest manifest = new OutputManifest(new File(targetDirectory, FILE_NAME));
+        if (manifest.file.isFile()) {
+            InputStream in = null;
+            try {
+                in = new FileInputStream(manifest.file);
+                manifest.previous.load(in);
+            } catch (IOException e) {
+                System.out.println("WARNING: ignoring unreadable ApexDoc manifest " + manifest.file + ": " +
+                        e.getMessage());
+                manifest.previous.clear();
+            } finally {
+                close(in);
+            }
+        }
+        return manifest;
+    }
+
+    /*************************************************************************
+     * @description records the fingerprint a page is built from, and returns
+     *              whether the page on disk was already built from it.
+     * @param fileName
+     *            - name of the page within the documentation folder
+     * @param fingerprint
+     * @param outputFile
+     *            - the page on disk
+     * @return true if the page can be left alone
+     */
+    public synchronized boolean isCurrent(String fileName, String fingerprint, File outputFile) {
+        current.setProperty(fileName, fingerprint);
+        return fingerprint.equals(previous.getProperty(fileName)) && outputFile.isFile();
+    }
+
+    /*************************************************************************
+     * @description writes the fingerprints recorded by this run, replacing
+     *              the manifest.
+     */
+    public synchronized void save() {
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(file);
+            current.store(out, "ApexDoc output manifest");
+        } catch (IOException e) {
+            System.out.println("WARNING: could not save ApexDoc manifest " + file + ": " + e.getMessage());
+        } finally {
+            close(out);
+        }
+    }
+
+    /*************************************************************************
+     * @description computes a fingerprint of some strings.
+     * @param parts
+     * @return hex string of the hash of the parts
+     */
+    public static String fingerprint(String... parts) {
+        MessageDigest md = newDigest();
+        for (String part : parts) {
+            if (part != null)
+                md.update(part.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+        return hex(md.digest());
+    }
+
+    /*************************************************************************
+     * @description computes a fingerprint of everything in a ClassModel tree
+     *              that can appear on its page.
+     * @param cModel
+     * @return hex string of the hash of the model
+     */
+    public static String fingerprint(ClassModel cModel) {
+        MessageDigest md = newDigest();
+        try {
+            DataOutputStream out = new DataOutputStream(new DigestOutputStream(new NullOutputStream(), md));
+            ModelCache.writeClassModel(out, cModel);
+            out.flush();
+        } catch (IOException e) {
+            // can't happen, nothing is written anywhere
+            throw new IllegalStateException(e);
+        }
+        return hex(md.digest());
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void close(Closeable closeable) {
+        try {
+            if (closeable != null)
+                closeable.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
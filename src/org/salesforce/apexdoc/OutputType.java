@@ -0,0 +1,3 @@
+package org.salesforce.apexdoc;
+
+enum OutputType{HTML, MARKDOWN}
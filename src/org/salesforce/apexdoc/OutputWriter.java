@@ -0,0 +1,220 @@
+package org.salesforce.apexdoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/*************************************************************************
+ * @description writes pages to disk on a pool of writer threads, so slow
+ *              file creation, such as on a network share, overlaps rather
+ *              than adding up. Pages are encoded as UTF-8 into a direct buffer
+ *              each writer thread reuses, up to 1 MB, and written with a
+ *              FileChannel. Larger pages are encoded into a heap array of
+ *              their own, so the direct buffers stay small. The
+ *              "Processed..." line for each page is reported in submission
+ *              order, a batch at a time, and only a bounded number of pages
+ *              wait to be written, so submit blocks when the writers fall
+ *              behind. The writer threads belong to the caller, who may
+ *              share them between runs.
+ */
+public class OutputWriter {
+
+    // number of written pages reported together
+    private static final int REPORT_BATCH = 64;
+
+    private final ExecutorService pool;
+    private final int maxPending;
+    private final ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+    private final StringBuilder report = new StringBuilder();
+    private final StringBuffer infoMessages;
+    private int cReported;
+
+    private static final ThreadLocal<CharsetEncoder> encoder = new ThreadLocal<CharsetEncoder>() {
+        @Override
+        protected CharsetEncoder initialValue() {
+            return StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+    };
+
+    // the largest direct buffer a writer thread keeps, as each one lives as long as the thread
+    static final int MAX_BUFFER = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer[]> buffer = new ThreadLocal<ByteBuffer[]>() {
+        @Override
+        protected ByteBuffer[] initialValue() {
+            return new ByteBuffer[] { ByteBuffer.allocateDirect(64 * 1024) };
+        }
+    };
+
+    /*************************************************************************
+     * @param pool
+     *            - the writer threads
+     * @param threads
+     *            - number of writer threads in the pool
+     * @param infoMessages
+     *            - where the "Processed..." lines are also collected, may be
+     *            null
+     */
+    public OutputWriter(ExecutorService pool, int threads, StringBuffer infoMessages) {
+        this.pool = pool;
+        this.maxPending = Math.max(1, threads) * 4;
+        this.infoMessages = infoMessages;
+    }
+
+    /*************************************************************************
+     * @description queues a page to be written, waiting while too many pages
+     *              are already waiting.
+     * @param fileName
+     *            - path of the file to create or replace
+     * @param contents
+     * @throws IOException
+     *             if an earlier page could not be written
+     */
+    public void submit(String fileName, String contents) throws IOException {
+        submit(fileName, contents, null);
+    }
+
+    /*************************************************************************
+     * @description queues a page to be written, and records its size and the
+     *              time it took to write in its file's -stats numbers.
+     * @param fileName
+     * @param contents
+     * @param fileStats
+     *            - the numbers of the class file the page is for, may be null
+     * @throws IOException
+     */
+    synchronized void submit(final String fileName, final String contents, final RunStats.FileStats fileStats)
+            throws IOException {
+        while (pending.size() >= maxPending)
+            reportOldest();
+        pending.add(pool.submit(new Callable<String>() {
+            public String call() throws IOException {
+                long start = System.nanoTime();
+                int cb = write(fileName, contents);
+                if (fileStats != null)
+                    fileStats.written(cb, System.nanoTime() - start);
+                return fileName;
+            }
+        }));
+    }
+
+    /*************************************************************************
+     * @description waits for every queued page to be written, and reports
+     *              them. The writer threads are left running.
+     * @throws IOException
+     *             if any page could not be written
+     */
+    public synchronized void close() throws IOException {
+        try {
+            while (!pending.isEmpty())
+                reportOldest();
+        } finally {
+            flushReport();
+        }
+    }
+
+    /*************************************************************************
+     * @description drops the pages that haven't started to be written, once
+     *              the run is canceled, and reports those already written.
+     *              Pages being written are finished, but not waited for.
+     */
+    public synchronized void cancel() {
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+            try {
+                reportOldest();
+            } catch (IOException e) {
+                // the run is over, so a failed page doesn't matter
+            }
+        }
+        for (Future<String> future : pending)
+            future.cancel(false);
+        pending.clear();
+        flushReport();
+    }
+
+    private void reportOldest() throws IOException {
+        Future<String> future = pending.remove();
+        String fileName;
+        try {
+            fileName = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while writing pages", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(e.getCause());
+        }
+        report.append(fileName).append(" Processed...\n");
+        if (infoMessages != null)
+            infoMessages.append(fileName + " Processed...\n");
+        if (++cReported % REPORT_BATCH == 0)
+            flushReport();
+    }
+
+    private void flushReport() {
+        if (report.length() > 0) {
+            System.out.print(report);
+            report.setLength(0);
+        }
+    }
+
+    /*************************************************************************
+     * @description encodes and writes one page, on a writer thread.
+     * @param fileName
+     * @param contents
+     * @return the number of bytes written
+     * @throws IOException
+     */
+    static int write(String fileName, String contents) throws IOException {
+        Object event = PhaseTimer.beginWrite();
+        ByteBuffer bytes = encode(contents);
+        int cb = bytes.remaining();
+        FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try {
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+        } finally {
+            channel.close();
+        }
+        PhaseTimer.endWrite(event, fileName, cb);
+        return cb;
+    }
+
+    // encodes into this thread's buffer, growing it up to MAX_BUFFER when a page doesn't fit.
+    // a page that could need more is encoded on the heap instead.
+    private static ByteBuffer encode(String contents) {
+        long cbNeeded = (long) contents.length() * 3;
+        if (cbNeeded > MAX_BUFFER)
+            return ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8));
+        CharsetEncoder enc = encoder.get();
+        ByteBuffer[] holder = buffer.get();
+        if (holder[0].capacity() < cbNeeded)
+            holder[0] = ByteBuffer.allocateDirect((int) Math.min(MAX_BUFFER,
+                    Math.max(cbNeeded, holder[0].capacity() * 2L)));
+        ByteBuffer bytes = holder[0];
+        bytes.clear();
+        enc.reset();
+        CharBuffer chars = CharBuffer.wrap(contents);
+        CoderResult result = enc.encode(chars, bytes, true);
+        if (!result.isUnderflow())
+            throw new IllegalStateException("page did not fit its encoding buffer: " + result);
+        enc.flush(bytes);
+        bytes.flip();
+        return bytes;
+    }
+}
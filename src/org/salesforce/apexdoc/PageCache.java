@@ -0,0 +1,79 @@
+package org.salesforce.apexdoc;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/*************************************************************************
+ * @description rendered pages kept for the -serve mode, bounded by their
+ *              total size in bytes rather than their count, since class pages
+ *              range from a few KB to several MB. When a new page doesn't
+ *              fit, the least recently served pages are dropped. A page
+ *              bigger than the whole cache is never kept. get and put may be
+ *              called from any number of threads.
+ */
+public class PageCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> mapNameToPage = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private long cBytes;
+    private long hits;
+    private long misses;
+
+    /*************************************************************************
+     * @param maxBytes
+     *            - the most bytes of pages kept
+     */
+    public PageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /*************************************************************************
+     * @param name
+     * @return the page, or null if it isn't cached
+     */
+    public synchronized byte[] get(String name) {
+        byte[] page = mapNameToPage.get(name);
+        if (page != null)
+            hits++;
+        else
+            misses++;
+        return page;
+    }
+
+    /*************************************************************************
+     * @description keeps a page, dropping the least recently served pages
+     *              until it fits.
+     * @param name
+     * @param page
+     */
+    public synchronized void put(String name, byte[] page) {
+        if (page.length > maxBytes)
+            return;
+        byte[] old = mapNameToPage.put(name, page);
+        if (old != null)
+            cBytes -= old.length;
+        cBytes += page.length;
+
+        Iterator<byte[]> iter = mapNameToPage.values().iterator();
+        while (cBytes > maxBytes) {
+            cBytes -= iter.next().length;
+            iter.remove();
+        }
+    }
+
+    public synchronized long getBytes() {
+        return cBytes;
+    }
+
+    public synchronized int size() {
+        return mapNameToPage.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,113 @@
+package org.salesforce.apexdoc;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/*************************************************************************
+ * @description bounded queue between rendering and writing, for the -stream
+ *              mode. Pages are written by a separate thread as soon as they
+ *              are rendered, and are released once written. When the writer
+ *              falls behind, put blocks, so no more than the queue's capacity
+ *              of rendered pages is ever held in memory.
+ */
+public class PageQueue {
+
+    /*************************************************************************
+     * @description writes one page, called on the writer thread.
+     */
+    public interface PageWriter {
+        void writePage(String fileName, String contents) throws IOException;
+    }
+
+    private static final Page END = new Page(null, null);
+
+    private final BlockingQueue<Page> queue;
+    private final Thread writerThread;
+    private volatile Exception failure;
+
+    public PageQueue(int capacity, final PageWriter writer) {
+        queue = new ArrayBlockingQueue<Page>(Math.max(1, capacity));
+        writerThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    for (Page page = queue.take(); page != END; page = queue.take())
+                        writer.writePage(page.fileName, page.contents);
+                } catch (Exception e) {
+                    failure = e;
+                    // unblock a producer waiting on a full queue
+                    queue.clear();
+                }
+            }
+        }, "ApexDoc page writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /*************************************************************************
+     * @description hands a rendered page to the writer, waiting while the
+     *              queue is full.
+     * @param fileName
+     * @param contents
+     * @throws IOException if the writer has failed
+     */
+    public void put(String fileName, String contents) throws IOException {
+        checkFailure();
+        try {
+            queue.put(new Page(fileName, contents));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while queueing " + fileName, e);
+        }
+    }
+
+    /*************************************************************************
+     * @description waits until every queued page has been written.
+     * @throws IOException if any page failed to be written
+     */
+    public void close() throws IOException {
+        try {
+            if (failure == null)
+                queue.put(END);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writerThread.interrupt();
+            throw new IOException("interrupted while writing pages", e);
+        }
+        checkFailure();
+    }
+
+    /*************************************************************************
+     * @description drops the pages waiting to be written, once the run is
+     *              canceled. The writer thread ends after the page it is
+     *              writing, without being waited for. Called on the thread
+     *              that puts the pages.
+     */
+    public void cancel() {
+        queue.clear();
+        queue.offer(END);
+    }
+
+    private void checkFailure() throws IOException {
+        Exception e = failure;
+        // the writer stopped because the run was canceled
+        if (e instanceof CancellationException)
+            throw (CancellationException) e;
+        if (e instanceof IOException)
+            throw (IOException) e;
+        if (e != null)
+            throw new IOException(e);
+    }
+
+    private static class Page {
+        final String fileName;
+        final String contents;
+
+        Page(String fileName, String contents) {
+            this.fileName = fileName;
+            this.contents = contents;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.salesforce.apexdoc;
+
+import java.io.IOException;
+
+/*************************************************************************
+ * @description receives the documentation from an in-memory run, instead of
+ *              it being written to the target folder. Each page, and each of
+ *              the files the pages use, such as ApexDoc.css, is passed once,
+ *              with its name within the documentation folder. Calls come one
+ *              at a time, but not always on the thread that started the run.
+ */
+public interface PageSink {
+
+    /*************************************************************************
+     * @param name
+     *            - the file's name, such as index.html
+     * @param contents
+     *            - the file's bytes; pages are UTF-8
+     * @throws IOException
+     *             to stop the run
+     */
+    void page(String name, byte[] contents) throws IOException;
+}
@@ -0,0 +1,138 @@
+package org.salesforce.apexdoc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*************************************************************************
+ * @description times the phases of one run, and counts what each phase
+ *              handled, for the summary printed at the end of the run. A
+ *              phase's time is the time the run spends in it: with streaming,
+ *              pages are written while others are rendered, and the time spent
+ *              waiting for the writers shows up as rendering. Phases are
+ *              started and stopped on the thread running the run, but items
+ *              may be counted from any thread. The run's progress monitor is
+ *              told as each phase starts.
+ *
+ *              When the JVM has Flight Recorder, each phase, and each class
+ *              file parsed and page rendered and written, is also recorded as
+ *              an event, see FlightRecorderEvents. The events cost next to
+ *              nothing unless a recording is running.
+ */
+final class PhaseTimer {
+
+    enum Phase {
+        DISCOVERY, PARSE, GROUP, SIDEBAR, RENDER, WRITE, ASSETS
+    }
+
+    // Flight Recorder's event API is in Java 11, and in Java 8 from update 262
+    private static final boolean JFR = hasFlightRecorder();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] started = new long[Phase.values().length];
+    private final long[] nanos = new long[Phase.values().length];
+    private final boolean[] ran = new boolean[Phase.values().length];
+    private final Object[] events = new Object[Phase.values().length];
+    private final AtomicLongArray items = new AtomicLongArray(Phase.values().length);
+    private RunProgress progress;
+
+    void setProgress(RunProgress progress) {
+        this.progress = progress;
+    }
+
+    void start(Phase phase) {
+        if (progress != null)
+            progress.phase(phase);
+        started[phase.ordinal()] = System.nanoTime();
+        if (isRecording())
+            events[phase.ordinal()] = FlightRecorderEvents.beginPhase();
+    }
+
+    void stop(Phase phase) {
+        int i = phase.ordinal();
+        nanos[i] += System.nanoTime() - started[i];
+        ran[i] = true;
+        if (events[i] != null) {
+            FlightRecorderEvents.endPhase(events[i], name(phase), items.get(i));
+            events[i] = null;
+        }
+    }
+
+    void stop(Phase phase, long cItems) {
+        count(phase, cItems);
+        stop(phase);
+    }
+
+    // adds to the number of items a phase handled
+    void count(Phase phase, long cItems) {
+        items.addAndGet(phase.ordinal(), cItems);
+    }
+
+    long getItems(Phase phase) {
+        return items.get(phase.ordinal());
+    }
+
+    /*************************************************************************
+     * @description prints the time and item count of each phase that ran,
+     *              and the time of the whole run.
+     */
+    void print() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-14s %10s %10s%n", "ApexDoc phase", "ms", "items"));
+        for (Phase phase : Phase.values()) {
+            if (ran[phase.ordinal()])
+                table.append(String.format("%-14s %10.1f %10d%n", name(phase), nanos[phase.ordinal()] / 1e6,
+                        getItems(phase)));
+        }
+        table.append(String.format("%-14s %10.1f", "total", (System.nanoTime() - startNanos) / 1e6));
+        System.out.println(table);
+    }
+
+    private static String name(Phase phase) {
+        return phase.name().toLowerCase();
+    }
+
+    // the event classes are only loaded once Flight Recorder has started, as
+    // loading them starts much of it, which takes longer than a small run
+    private static boolean isRecording() {
+        return JFR && FlightRecorderEvents.isRecording();
+    }
+
+    private static boolean hasFlightRecorder() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    // the per file events, which are null when nothing records them
+
+    static Object beginParse() {
+        return isRecording() ? FlightRecorderEvents.beginParse() : null;
+    }
+
+    static void endParse(Object event, String source, long bytes) {
+        if (event != null)
+            FlightRecorderEvents.endParse(event, source, bytes);
+    }
+
+    static Object beginRender() {
+        return isRecording() ? FlightRecorderEvents.beginRender() : null;
+    }
+
+    static void endRender(Object event, String className, long characters) {
+        if (event != null)
+            FlightRecorderEvents.endRender(event, className, characters);
+    }
+
+    static Object beginWrite() {
+        return isRecording() ? FlightRecorderEvents.beginWrite() : null;
+    }
+
+    static void endWrite(Object event, String page, long bytes) {
+        if (event != null)
+            FlightRecorderEvents.endWrite(event, page, bytes);
+    }
+}
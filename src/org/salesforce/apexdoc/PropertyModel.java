@@ -18,9 +18,15 @@ public class PropertyModel extends ApexModel {
 
         }
         super.setNameLine(nameLine, iLine);
+        strPropertyName = parsePropertyName();
     }
 
+    // worked out once, when the name line is set
     public String getPropertyName() {
+        return strPropertyName;
+    }
+
+    private String parsePropertyName() {
         String nameLine = getNameLine().trim();
         if (nameLine != null && nameLine.length() > 0) {
             int lastindex = nameLine.lastIndexOf(" ");
@@ -31,4 +37,6 @@ public class PropertyModel extends ApexModel {
         }
         return "";
     }
+
+    private String strPropertyName = "";
 }
\ No newline at end of file
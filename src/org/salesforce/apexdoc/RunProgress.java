@@ -0,0 +1,126 @@
+package org.salesforce.apexdoc;
+
+import java.util.concurrent.CancellationException;
+
+/*************************************************************************
+ * @description the progress of one run, passed on to the caller's
+ *              IProgressMonitor. It counts the work done, works out the
+ *              throughput and time remaining, and names each phase as it
+ *              starts. Work may be counted and cancellation checked from any
+ *              of the run's threads; the monitor is only called by one of
+ *              them at a time. Once the monitor cancels the run, it stays
+ *              canceled, so the workers can check as often as they like.
+ *              Without a monitor, nothing is counted and the run can't be
+ *              canceled.
+ */
+final class RunProgress {
+
+    // the most often IProgressMonitor.progress is called
+    private static final long PROGRESS_INTERVAL_NANOS = 100000000L;
+
+    private final IProgressMonitor monitor;
+    private long startNanos;
+    private long lastProgressNanos;
+    private int workDone;
+    private int totalWork;
+    private volatile boolean canceled;
+
+    /*************************************************************************
+     * @param monitor
+     *            - may be null
+     */
+    RunProgress(IProgressMonitor monitor) {
+        this.monitor = monitor;
+        this.startNanos = System.nanoTime();
+    }
+
+    synchronized void beginTask(String name, int totalWork) {
+        if (monitor == null)
+            return;
+        this.totalWork = totalWork;
+        this.startNanos = System.nanoTime();
+        monitor.beginTask(name, totalWork);
+    }
+
+    /*************************************************************************
+     * @description corrects the total, once the rest of the run's work is
+     *              known.
+     * @param remainingWork
+     *            - the units of work left after what is already done
+     */
+    synchronized void setRemainingWork(int remainingWork) {
+        if (monitor == null)
+            return;
+        totalWork = workDone + remainingWork;
+        monitor.setTotalWork(totalWork);
+    }
+
+    synchronized void phase(PhaseTimer.Phase phase) {
+        if (monitor == null)
+            return;
+        monitor.subTask(describe(phase));
+    }
+
+    void worked(int work) {
+        if (monitor == null)
+            return;
+        synchronized (this) {
+            workDone += work;
+            monitor.worked(work);
+            long now = System.nanoTime();
+            if (now - lastProgressNanos < PROGRESS_INTERVAL_NANOS && workDone < totalWork)
+                return;
+            lastProgressNanos = now;
+            double workPerSecond = workDone / Math.max(1e-9, (now - startNanos) / 1e9);
+            long millisRemaining = workPerSecond > 0 ?
+                    (long) (Math.max(0, totalWork - workDone) / workPerSecond * 1000) : -1;
+            monitor.progress(workDone, totalWork, workPerSecond, millisRemaining);
+        }
+    }
+
+    boolean isCanceled() {
+        if (canceled)
+            return true;
+        if (monitor == null)
+            return false;
+        synchronized (this) {
+            if (monitor.isCanceled())
+                canceled = true;
+        }
+        return canceled;
+    }
+
+    /*************************************************************************
+     * @description stops the calling thread's work if the run was canceled.
+     * @throws CancellationException
+     *             if it was
+     */
+    void checkCanceled() {
+        if (isCanceled())
+            throw new CancellationException("ApexDoc run canceled");
+    }
+
+    synchronized void done() {
+        if (monitor != null)
+            monitor.done();
+    }
+
+    private static String describe(PhaseTimer.Phase phase) {
+        switch (phase) {
+        case DISCOVERY:
+            return "Finding class files";
+        case PARSE:
+            return "Parsing class files";
+        case GROUP:
+            return "Grouping classes";
+        case SIDEBAR:
+            return "Building the Class Menu";
+        case RENDER:
+            return "Rendering pages";
+        case WRITE:
+            return "Writing pages";
+        default:
+            return "Copying css, script and image files";
+        }
+    }
+}
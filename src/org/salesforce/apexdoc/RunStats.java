@@ -0,0 +1,332 @@
+package org.salesforce.apexdoc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*************************************************************************
+ * @description the numbers of each source file in one run, for the -stats
+ *              report: its size and line count, how long it took to parse,
+ *              how many methods and properties it has, and the size of its
+ *              page and how long that took to render and write. Files are
+ *              added as they are parsed, and their pages are found by class
+ *              name, from whichever threads do the work. When
+ *              two files have classes of the same name, such as in different
+ *              folders with -recursive, they share one page, so neither is
+ *              given its numbers.
+ *
+ *              The report has one row per file, sorted by path, the
+ *              percentiles of each number over all the files, and the files
+ *              that took longest. It is written as CSV when its file name
+ *              ends in .csv, and as JSON otherwise. In CSV, the percentiles
+ *              are extra rows whose source is p50, p90 and so on, and the
+ *              slowest files have their rank in the last column.
+ */
+final class RunStats {
+
+    // the number of slowest files listed
+    static final int SLOWEST = 10;
+
+    private static final double[] PERCENTILES = { 50, 90, 95, 99, 100 };
+    private static final String[] PERCENTILE_NAMES = { "p50", "p90", "p95", "p99", "max" };
+    private static final String[] COLUMNS = { "bytes", "lines", "parseMs", "methods", "properties", "pageBytes",
+            "renderMs", "writeMs", "totalMs" };
+
+    /*************************************************************************
+     * @description the numbers of one source file. Its page's numbers stay 0
+     *              when the page isn't rendered or written, such as when it is
+     *              already up to date, and are left out of the report when
+     *              another file's class has the same name.
+     */
+    static final class FileStats {
+        final String source;
+        final String className;
+        final long bytes;
+        final long lines;
+        final long parseNanos;
+        final int methods;
+        final int properties;
+        volatile long pageBytes;
+        volatile long renderNanos;
+        volatile long writeNanos;
+        // whether another file's class has the same name, and so the same page
+        volatile boolean pageShared;
+
+        private FileStats(String source, ClassModel cModel, long bytes, long lines, long parseNanos) {
+            this.source = source;
+            this.className = cModel != null ? cModel.getClassName() : "";
+            this.bytes = bytes;
+            this.lines = lines;
+            this.parseNanos = parseNanos;
+            this.methods = cModel != null ? countMethods(cModel) : 0;
+            this.properties = cModel != null ? countProperties(cModel) : 0;
+        }
+
+        // records the page being written, from a writer thread
+        void written(long cbPage, long nanos) {
+            pageBytes = cbPage;
+            writeNanos = nanos;
+        }
+
+        long totalNanos() {
+            return parseNanos + renderNanos + writeNanos;
+        }
+
+        // the value of each of COLUMNS, with NaN for the page's numbers when the page is shared
+        double[] values() {
+            if (pageShared)
+                return new double[] { bytes, lines, parseNanos / 1e6, methods, properties, Double.NaN, Double.NaN,
+                        Double.NaN, Double.NaN };
+            return new double[] { bytes, lines, parseNanos / 1e6, methods, properties, pageBytes, renderNanos / 1e6,
+                    writeNanos / 1e6, totalNanos() / 1e6 };
+        }
+    }
+
+    private final ConcurrentLinkedQueue<FileStats> files = new ConcurrentLinkedQueue<FileStats>();
+    private final ConcurrentHashMap<String, FileStats> mapClassNameToStats =
+            new ConcurrentHashMap<String, FileStats>();
+
+    /*************************************************************************
+     * @description adds a class file that was read and parsed.
+     * @param source
+     *            - the file's path
+     * @param bytes
+     *            - the file's contents
+     * @param cModel
+     *            - its class, or null if it had none in scope
+     * @param parseNanos
+     *            - the time to read and parse it
+     */
+    void parsed(String source, byte[] bytes, ClassModel cModel, long parseNanos) {
+        long lines = 0;
+        for (byte b : bytes) {
+            if (b == '\n')
+                lines++;
+        }
+        if (bytes.length > 0 && bytes[bytes.length - 1] != '\n')
+            lines++;
+        add(new FileStats(source, cModel, bytes.length, lines, parseNanos));
+    }
+
+    /*************************************************************************
+     * @description adds a source of an in-memory run that was parsed.
+     * @param source
+     *            - the source's name
+     * @param contents
+     * @param cModel
+     *            - its class, or null if it had none in scope
+     * @param parseNanos
+     */
+    void parsed(String source, CharSequence contents, ClassModel cModel, long parseNanos) {
+        long lines = 0;
+        for (int i = 0; i < contents.length(); i++) {
+            if (contents.charAt(i) == '\n')
+                lines++;
+        }
+        if (contents.length() > 0 && contents.charAt(contents.length() - 1) != '\n')
+            lines++;
+        long bytes = contents.toString().getBytes(StandardCharsets.UTF_8).length;
+        add(new FileStats(source, cModel, bytes, lines, parseNanos));
+    }
+
+    private void add(FileStats fileStats) {
+        files.add(fileStats);
+        if (fileStats.className.length() == 0)
+            return;
+        FileStats fsSameName = mapClassNameToStats.putIfAbsent(fileStats.className, fileStats);
+        if (fsSameName != null) {
+            fsSameName.pageShared = true;
+            fileStats.pageShared = true;
+        }
+    }
+
+    // the numbers of the file whose class has the page, or null for the index, menu and group pages,
+    // and for a page that more than one file's class has
+    FileStats forPage(String pageName) {
+        FileStats fileStats = mapClassNameToStats.get(pageName);
+        return fileStats != null && !fileStats.pageShared ? fileStats : null;
+    }
+
+    void rendered(String className, long nanos) {
+        FileStats fileStats = forPage(className);
+        if (fileStats != null)
+            fileStats.renderNanos = nanos;
+    }
+
+    private static int countMethods(ClassModel cModel) {
+        int cMethods = cModel.getMethods().size();
+        for (ClassModel cmChild : cModel.getChildClasses())
+            cMethods += countMethods(cmChild);
+        return cMethods;
+    }
+
+    private static int countProperties(ClassModel cModel) {
+        int cProperties = cModel.getProperties().size();
+        for (ClassModel cmChild : cModel.getChildClasses())
+            cProperties += countProperties(cmChild);
+        return cProperties;
+    }
+
+    /*************************************************************************
+     * @description writes the report, as CSV if the file name ends in .csv,
+     *              and as JSON otherwise.
+     * @param fileName
+     * @throws IOException
+     */
+    void write(String fileName) throws IOException {
+        List<FileStats> rows = new ArrayList<FileStats>(files);
+        Collections.sort(rows, new Comparator<FileStats>() {
+            public int compare(FileStats a, FileStats b) {
+                return a.source.compareTo(b.source);
+            }
+        });
+        List<FileStats> slowest = new ArrayList<FileStats>(rows);
+        Collections.sort(slowest, new Comparator<FileStats>() {
+            public int compare(FileStats a, FileStats b) {
+                return Long.compare(b.totalNanos(), a.totalNanos());
+            }
+        });
+        if (slowest.size() > SLOWEST)
+            slowest = slowest.subList(0, SLOWEST);
+
+        double[][] percentiles = percentiles(rows);
+        String report = fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ?
+                toCSV(rows, percentiles, slowest) : toJSON(rows, percentiles, slowest);
+        Files.write(Paths.get(fileName), report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // the value of each of PERCENTILES, for each of COLUMNS, by nearest rank, over the files that
+    // have a value in the column. a column no file has a value in has NaN.
+    private static double[][] percentiles(List<FileStats> rows) {
+        double[][] columns = new double[COLUMNS.length][rows.size()];
+        int[] cValues = new int[COLUMNS.length];
+        for (int i = 0; i < rows.size(); i++) {
+            double[] values = rows.get(i).values();
+            for (int iCol = 0; iCol < COLUMNS.length; iCol++) {
+                if (!Double.isNaN(values[iCol]))
+                    columns[iCol][cValues[iCol]++] = values[iCol];
+            }
+        }
+        double[][] percentiles = new double[COLUMNS.length][PERCENTILES.length];
+        for (int iCol = 0; iCol < COLUMNS.length; iCol++) {
+            double[] sorted = Arrays.copyOf(columns[iCol], cValues[iCol]);
+            Arrays.sort(sorted);
+            if (sorted.length == 0 && !rows.isEmpty())
+                Arrays.fill(percentiles[iCol], Double.NaN);
+            for (int iP = 0; iP < PERCENTILES.length && sorted.length > 0; iP++) {
+                int rank = (int) Math.ceil(PERCENTILES[iP] / 100 * sorted.length);
+                percentiles[iCol][iP] = sorted[Math.max(0, rank - 1)];
+            }
+        }
+        return percentiles;
+    }
+
+    private static String toJSON(List<FileStats> rows, double[][] percentiles, List<FileStats> slowest) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"files\": [");
+        for (int i = 0; i < rows.size(); i++) {
+            json.append(i > 0 ? ",\n    " : "\n    ");
+            appendJSON(json, rows.get(i));
+        }
+        json.append("\n  ],\n  \"percentiles\": {");
+        for (int iCol = 0; iCol < COLUMNS.length; iCol++) {
+            json.append(iCol > 0 ? ",\n    " : "\n    ");
+            json.append('"').append(COLUMNS[iCol]).append("\": {");
+            for (int iP = 0; iP < PERCENTILES.length; iP++) {
+                if (iP > 0)
+                    json.append(", ");
+                json.append('"').append(PERCENTILE_NAMES[iP]).append("\": ");
+                json.append(number(COLUMNS[iCol], percentiles[iCol][iP], true));
+            }
+            json.append('}');
+        }
+        json.append("\n  },\n  \"slowest\": [");
+        for (int i = 0; i < slowest.size(); i++) {
+            json.append(i > 0 ? ",\n    " : "\n    ");
+            appendJSON(json, slowest.get(i));
+        }
+        json.append("\n  ]\n}\n");
+        return json.toString();
+    }
+
+    private static void appendJSON(StringBuilder json, FileStats fileStats) {
+        json.append("{\"source\": ");
+        appendJSONString(json, fileStats.source);
+        json.append(", \"class\": ");
+        appendJSONString(json, fileStats.className);
+        double[] values = fileStats.values();
+        for (int iCol = 0; iCol < COLUMNS.length; iCol++)
+            json.append(", \"").append(COLUMNS[iCol]).append("\": ")
+                    .append(number(COLUMNS[iCol], values[iCol], true));
+        json.append('}');
+    }
+
+    private static void appendJSONString(StringBuilder json, String s) {
+        json.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        json.append('"');
+    }
+
+    private static String toCSV(List<FileStats> rows, double[][] percentiles, List<FileStats> slowest) {
+        StringBuilder csv = new StringBuilder();
+        csv.append("source,class");
+        for (String column : COLUMNS)
+            csv.append(',').append(column);
+        csv.append(",slowestRank\n");
+        for (FileStats fileStats : rows) {
+            appendCSVString(csv, fileStats.source);
+            csv.append(',');
+            appendCSVString(csv, fileStats.className);
+            double[] values = fileStats.values();
+            for (int iCol = 0; iCol < COLUMNS.length; iCol++)
+                csv.append(',').append(number(COLUMNS[iCol], values[iCol], false));
+            csv.append(',');
+            int rank = slowest.indexOf(fileStats);
+            if (rank >= 0)
+                csv.append(rank + 1);
+            csv.append('\n');
+        }
+        for (int iP = 0; iP < PERCENTILES.length; iP++) {
+            csv.append(PERCENTILE_NAMES[iP]).append(',');
+            for (int iCol = 0; iCol < COLUMNS.length; iCol++)
+                csv.append(',').append(number(COLUMNS[iCol], percentiles[iCol][iP], false));
+            csv.append(",\n");
+        }
+        return csv.toString();
+    }
+
+    private static void appendCSVString(StringBuilder csv, String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            csv.append(s);
+            return;
+        }
+        csv.append('"').append(s.replace("\"", "\"\"")).append('"');
+    }
+
+    // times in ms to the microsecond, and everything else as a whole number. a number a file
+    // doesn't have is null in JSON, and empty in CSV.
+    private static String number(String column, double value, boolean json) {
+        if (Double.isNaN(value))
+            return json ? "null" : "";
+        if (column.endsWith("Ms"))
+            return String.format(Locale.ROOT, "%.3f", value);
+        return Long.toString(Math.round(value));
+    }
+}
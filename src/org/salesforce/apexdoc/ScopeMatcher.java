@@ -0,0 +1,128 @@
+package org.salesforce.apexdoc;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/*************************************************************************
+ * @description the scopes being documented, from the -p parameter, compiled
+ *              once into lowercase character arrays. Matching is case
+ *              insensitive, only matches whole words, and allocates nothing,
+ *              so it can be called for every statement of every file, from
+ *              any number of parser threads. A ScopeMatcher can't be changed
+ *              once built.
+ */
+public final class ScopeMatcher {
+
+    private final String[] rgstrScope;
+    private final char[][] rgrgchScope;
+
+    /*************************************************************************
+     * @param rgstrScope
+     *            the scopes, in the order they are tried and shown. Blank
+     *            entries are ignored.
+     */
+    public ScopeMatcher(String[] rgstrScope) {
+        ArrayList<String> scopes = new ArrayList<String>(rgstrScope.length);
+        for (String scope : rgstrScope) {
+            if (scope != null && scope.trim().length() > 0)
+                scopes.add(scope.trim());
+        }
+        this.rgstrScope = scopes.toArray(new String[scopes.size()]);
+        this.rgrgchScope = new char[this.rgstrScope.length][];
+        for (int i = 0; i < this.rgstrScope.length; i++)
+            this.rgrgchScope[i] = this.rgstrScope[i].toLowerCase(Locale.ROOT).toCharArray();
+    }
+
+    /*************************************************************************
+     * @description builds a matcher from a semicolon separated list of
+     *              scopes, as given to -p.
+     * @param strScopes
+     * @return ScopeMatcher
+     */
+    public static ScopeMatcher parse(String strScopes) {
+        return new ScopeMatcher(strScopes.split(";"));
+    }
+
+    public int size() {
+        return rgstrScope.length;
+    }
+
+    /*************************************************************************
+     * @param i
+     * @return the i'th scope, as it was configured
+     */
+    public String get(int i) {
+        return rgstrScope[i];
+    }
+
+    /*************************************************************************
+     * @description finds the scope of a declaration: the first configured
+     *              scope that appears in it as a whole word followed by a
+     *              space.
+     * @param str
+     *            the declaration's name line
+     * @return the scope as it was configured, or null if none appear
+     */
+    public String match(String str) {
+        for (int i = 0; i < rgrgchScope.length; i++) {
+            if (containsWord(str, rgrgchScope[i]))
+                return rgstrScope[i];
+        }
+        return null;
+    }
+
+    /*************************************************************************
+     * @description returns true if the characters buf[ichStart..ichEnd) are
+     *              one of the scopes.
+     * @param buf
+     * @param ichStart
+     * @param ichEnd
+     * @return boolean
+     */
+    public boolean isScope(char[] buf, int ichStart, int ichEnd) {
+        int cch = ichEnd - ichStart;
+        for (char[] rgchScope : rgrgchScope) {
+            if (rgchScope.length == cch && regionMatches(buf, ichStart, rgchScope))
+                return true;
+        }
+        return false;
+    }
+
+    /*************************************************************************
+     * @return the scopes as they were configured, separated by semicolons
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rgstrScope.length; i++) {
+            if (i > 0)
+                sb.append(';');
+            sb.append(rgstrScope[i]);
+        }
+        return sb.toString();
+    }
+
+    private static boolean containsWord(String str, char[] rgchWord) {
+        int cch = rgchWord.length;
+        for (int ich = 0; ich + cch < str.length(); ich++) {
+            if (str.charAt(ich + cch) != ' ')
+                continue;
+            if (ich > 0 && Character.isJavaIdentifierPart(str.charAt(ich - 1)))
+                continue;
+            int i = 0;
+            while (i < cch && Character.toLowerCase(str.charAt(ich + i)) == rgchWord[i])
+                i++;
+            if (i == cch)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(char[] buf, int ichStart, char[] rgchWord) {
+        for (int i = 0; i < rgchWord.length; i++) {
+            if (Character.toLowerCase(buf[ichStart + i]) != rgchWord[i])
+                return false;
+        }
+        return true;
+    }
+}
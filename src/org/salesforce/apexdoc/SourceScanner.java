@@ -0,0 +1,237 @@
+package org.salesforce.apexdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/*************************************************************************
+ * @description finds the class files to document in the source folder.
+ *              Only .cls files are returned, so the -meta.xml files next to
+ *              them are never looked at again. With recursion, the whole tree
+ *              is walked, as in SFDX projects where classes are several
+ *              folders deep, and hidden folders such as .git and .sfdx are
+ *              skipped. Include and exclude globs are checked during the
+ *              walk, and a folder matching an exclude glob isn't entered. A
+ *              glob with a / is matched against the path within the source
+ *              folder, and one without against the file or folder name. The
+ *              files are returned sorted by path, so every run sees them in
+ *              the same order.
+ */
+public class SourceScanner {
+
+    private final Path root;
+    private final boolean recursive;
+    private final List<PathMatcher> includePaths = new ArrayList<PathMatcher>();
+    private final List<PathMatcher> includeNames = new ArrayList<PathMatcher>();
+    private final List<PathMatcher> excludePaths = new ArrayList<PathMatcher>();
+    private final List<PathMatcher> excludeNames = new ArrayList<PathMatcher>();
+
+    /*************************************************************************
+     * @param sourceDirectory
+     * @param recursive
+     *            - whether to look in the source folder's subfolders
+     * @param includes
+     *            - globs a class file must match one of, or empty for all
+     * @param excludes
+     *            - globs of class files and folders to leave out
+     */
+    public SourceScanner(String sourceDirectory, boolean recursive, List<String> includes, List<String> excludes) {
+        this.root = Paths.get(sourceDirectory).toAbsolutePath().normalize();
+        this.recursive = recursive;
+        FileSystem fs = FileSystems.getDefault();
+        for (String glob : includes)
+            (glob.indexOf('/') != -1 ? includePaths : includeNames).add(fs.getPathMatcher("glob:" + glob));
+        for (String glob : excludes)
+            (glob.indexOf('/') != -1 ? excludePaths : excludeNames).add(fs.getPathMatcher("glob:" + glob));
+    }
+
+    /*************************************************************************
+     * @description finds the class files.
+     * @param pool
+     *            - walks the source folder's subfolders at the same time,
+     *            may be null
+     * @return the class files, sorted by path
+     */
+    public ArrayList<File> find(ExecutorService pool) {
+        ArrayList<File> files = new ArrayList<File>();
+        if (!Files.isDirectory(root)) {
+            System.out.println("WARNING: No files found in directory: " + root);
+            return files;
+        }
+
+        // the top folder's own files, and its subfolders to walk
+        ArrayList<Path> dirs = new ArrayList<Path>();
+        try {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(root);
+            try {
+                for (Path path : stream) {
+                    if (Files.isDirectory(path)) {
+                        if (recursive && acceptDirectory(path))
+                            dirs.add(path);
+                    } else if (acceptFile(path)) {
+                        files.add(path.toFile());
+                    }
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            System.out.println("WARNING: can't list " + root + ": " + e.getMessage());
+        }
+
+        if (pool == null || dirs.size() < 2) {
+            for (Path dir : dirs)
+                files.addAll(walk(dir));
+        } else {
+            ArrayList<Future<ArrayList<File>>> futures = new ArrayList<Future<ArrayList<File>>>(dirs.size());
+            for (final Path dir : dirs) {
+                futures.add(pool.submit(new Callable<ArrayList<File>>() {
+                    public ArrayList<File> call() {
+                        return walk(dir);
+                    }
+                }));
+            }
+            try {
+                for (Future<ArrayList<File>> future : futures)
+                    files.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            } finally {
+                for (Future<ArrayList<File>> future : futures)
+                    future.cancel(false);
+            }
+        }
+
+        if (files.isEmpty())
+            System.out.println("WARNING: No files found in directory: " + root);
+        Collections.sort(files);
+        return files;
+    }
+
+    // the source folder, absolute and normalized, which every path found is within
+    Path getRoot() {
+        return root;
+    }
+
+    /*************************************************************************
+     * @description returns the folders that are searched for class files:
+     *              the source folder, and with recursion, every subfolder
+     *              that isn't skipped.
+     * @return List of Path
+     * @throws IOException
+     */
+    public List<Path> findDirectories() throws IOException {
+        final ArrayList<Path> dirs = new ArrayList<Path>();
+        if (!recursive) {
+            dirs.add(root);
+            return dirs;
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && !acceptDirectory(dir))
+                    return FileVisitResult.SKIP_SUBTREE;
+                dirs.add(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return dirs;
+    }
+
+    /*************************************************************************
+     * @description returns true if a file is one of the class files to
+     *              document. The file doesn't have to exist.
+     * @param path
+     * @return boolean
+     */
+    public boolean accept(Path path) {
+        path = path.toAbsolutePath().normalize();
+        if (!path.startsWith(root))
+            return false;
+        if (!recursive && root.relativize(path).getNameCount() > 1)
+            return false;
+        // the folders on the way must not be skipped either
+        for (Path dir = path.getParent(); !dir.equals(root); dir = dir.getParent()) {
+            if (!acceptDirectory(dir))
+                return false;
+        }
+        return acceptFile(path);
+    }
+
+    // checks a file found in a folder that isn't skipped
+    private boolean acceptFile(Path path) {
+        if (!path.getFileName().toString().endsWith(".cls"))
+            return false;
+        Path relative = root.relativize(path);
+        if (matches(relative, excludePaths, excludeNames))
+            return false;
+        return (includePaths.isEmpty() && includeNames.isEmpty()) || matches(relative, includePaths, includeNames);
+    }
+
+    // checks a subfolder of the source folder, which is skipped if it is hidden or excluded
+    boolean acceptDirectory(Path dir) {
+        String name = dir.getFileName().toString();
+        return !name.startsWith(".") && !matches(root.relativize(dir), excludePaths, excludeNames);
+    }
+
+    private static boolean matches(Path relative, List<PathMatcher> paths, List<PathMatcher> names) {
+        for (PathMatcher matcher : paths) {
+            if (matcher.matches(relative))
+                return true;
+        }
+        Path name = relative.getFileName();
+        for (PathMatcher matcher : names) {
+            if (matcher.matches(name))
+                return true;
+        }
+        return false;
+    }
+
+    // walks one subfolder of the source folder
+    private ArrayList<File> walk(Path dir) {
+        final ArrayList<File> files = new ArrayList<File>();
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    return acceptDirectory(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && acceptFile(file))
+                        files.add(file.toFile());
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    System.out.println("WARNING: can't read " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.out.println("WARNING: can't read " + dir + ": " + e.getMessage());
+        }
+        return files;
+    }
+}
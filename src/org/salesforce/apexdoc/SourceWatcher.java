@@ -0,0 +1,163 @@
+package org.salesforce.apexdoc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*************************************************************************
+ * @description watches the source folder for changes, for the -watch mode.
+ *              A burst of events, such as an editor saving a file through a
+ *              temp file and a rename, is coalesced into one set of changed
+ *              files once the folder has been quiet for a short while. Only
+ *              the class files the scanner would document count as changes,
+ *              so the pages, manifest and cache a run writes into a target
+ *              folder inside the source folder don't start another run. With
+ *              -recursive, each subfolder the scanner doesn't skip is watched
+ *              too, apart from the output folder, and a new or deleted one
+ *              makes the whole tree count as changed, since the files in it
+ *              may never get events of their own.
+ */
+public class SourceWatcher {
+
+    // how long the folder must be quiet before a burst of changes is reported
+    private static final long QUIET_MILLIS = 200;
+
+    private final SourceScanner scanner;
+    private final boolean recursive;
+    private final Path ignoredDir;
+    private final WatchService watchService;
+    private final HashSet<Path> dirs = new HashSet<Path>();
+
+    /*************************************************************************
+     * @param scanner
+     *            - finds the folders to watch, and decides which files count
+     * @param recursive
+     *            - whether subfolders are documented too
+     * @param targetDirectory
+     *            - where the documentation is written. Changes within it are
+     *            ignored, or within its output folder when it holds the
+     *            source folder.
+     * @throws IOException
+     */
+    public SourceWatcher(SourceScanner scanner, boolean recursive, String targetDirectory) throws IOException {
+        this.scanner = scanner;
+        this.recursive = recursive;
+        Path target = Paths.get(targetDirectory).toAbsolutePath().normalize();
+        this.ignoredDir = scanner.getRoot().startsWith(target) ? target.resolve(Constants.ROOT_DIRECTORY) : target;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        for (Path dir : scanner.findDirectories()) {
+            if (!dir.startsWith(ignoredDir))
+                register(dir);
+        }
+    }
+
+    // watches a new folder, and the folders within it, skipping those the scanner skips, as
+    // findDirectories() does. returns false if the new folder itself is skipped.
+    private boolean registerTree(Path dir) throws IOException {
+        if (!scanner.acceptDirectory(dir) || dir.startsWith(ignoredDir))
+            return false;
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (!scanner.acceptDirectory(dir) || dir.startsWith(ignoredDir))
+                    return FileVisitResult.SKIP_SUBTREE;
+                register(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return true;
+    }
+
+    private void register(Path dir) throws IOException {
+        dirs.add(dir);
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /*************************************************************************
+     * @description blocks until class files in the source folder change.
+     *              Events for any other file are dropped without returning.
+     * @return the changed class files, created, modified or deleted. null if
+     *         events were lost and the whole folder should be treated as
+     *         changed.
+     * @throws InterruptedException
+     * @throws IOException
+     *             if a new subfolder can't be watched
+     */
+    public LinkedHashSet<File> awaitChanges() throws InterruptedException, IOException {
+        while (true) {
+            LinkedHashSet<File> changed = collectChanges(watchService.take());
+            if (changed == null || !changed.isEmpty())
+                return changed;
+        }
+    }
+
+    /*************************************************************************
+     * @description waits a limited time for class files in the source folder
+     *              to change.
+     * @param timeout
+     * @param unit
+     * @return the changed class files, which is empty if none changed in
+     *         time. null if events were lost and the whole folder should be
+     *         treated as changed.
+     * @throws InterruptedException
+     * @throws IOException
+     *             if a new subfolder can't be watched
+     */
+    public LinkedHashSet<File> pollChanges(long timeout, TimeUnit unit) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            long nanosLeft = deadline - System.nanoTime();
+            WatchKey key = nanosLeft > 0 ? watchService.poll(nanosLeft, TimeUnit.NANOSECONDS) : null;
+            if (key == null)
+                return new LinkedHashSet<File>();
+            LinkedHashSet<File> changed = collectChanges(key);
+            if (changed == null || !changed.isEmpty())
+                return changed;
+        }
+    }
+
+    // gathers the changes of a burst of events, starting with the key that was signalled
+    private LinkedHashSet<File> collectChanges(WatchKey key) throws InterruptedException, IOException {
+        LinkedHashSet<File> changed = new LinkedHashSet<File>();
+        boolean rescan = false;
+        while (key != null) {
+            Path dir = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    rescan = true;
+                    continue;
+                }
+                Path path = dir.resolve((Path) event.context());
+                if (path.startsWith(ignoredDir))
+                    continue;
+                if (recursive && event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    // a skipped folder has nothing to document, so it needs no rescan
+                    if (registerTree(path))
+                        rescan = true;
+                } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE && dirs.remove(path)) {
+                    rescan = true;
+                } else if (scanner.accept(path)) {
+                    changed.add(path.toFile());
+                }
+            }
+            key.reset();
+            key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return rescan ? null : changed;
+    }
+}
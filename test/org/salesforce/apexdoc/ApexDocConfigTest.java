@@ -0,0 +1,53 @@
+package org.salesforce.apexdoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/*************************************************************************
+ * @description the command line parameters ApexDocConfig.fromArgs turns
+ *              down, with a message saying which one is wrong.
+ */
+public class ApexDocConfigTest {
+
+    @Test
+    public void countsAreRead() {
+        ApexDocConfig config = ApexDocConfig.fromArgs(new String[] { "-s", "src", "-threads", "3", "-writers", "2" });
+        assertEquals("src", config.getSourceDirectory());
+        assertEquals(3, config.getThreads());
+        assertEquals(2, config.getWriters());
+        assertEquals("-serve sizes its pool itself by default", 0, config.getServeThreads());
+
+        config = ApexDocConfig.fromArgs(new String[] { "-serve", "0", "-servethreads", "8" });
+        assertEquals(8, config.getServeThreads());
+    }
+
+    @Test
+    public void lastParameterWithoutValueIsRefused() {
+        assertRefused("Missing value for -t", "-s", "src", "-t");
+        assertRefused("Missing value for -threads", "-s", "src", "-threads");
+        assertRefused("Missing value for -stats", "-stats");
+    }
+
+    @Test
+    public void countsBelowOneAreRefused() {
+        assertRefused("-threads must be at least 1: 0", "-threads", "0");
+        assertRefused("-writers must be at least 1: -2", "-writers", "-2");
+        assertRefused("-servethreads must be at least 1: 0", "-servethreads", "0");
+    }
+
+    @Test
+    public void unknownParameterIsRefused() {
+        assertRefused("Unknown parameter: -x", "-s", "src", "-x");
+    }
+
+    private static void assertRefused(String message, String... args) {
+        try {
+            ApexDocConfig.fromArgs(args);
+            fail("accepted " + String.join(" ", args));
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
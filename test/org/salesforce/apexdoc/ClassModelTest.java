@@ -0,0 +1,86 @@
+package org.salesforce.apexdoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/*************************************************************************
+ * @description the lists a ClassModel hands out, which every page rendered
+ *              from it shares, and the order of its sorted methods.
+ */
+public class ClassModelTest {
+
+    private static final String SOURCE = "/** @description test */\n" +
+            "public class Ctor {\n" +
+            "    /** @description b */\n" +
+            "    public Integer beta { get; set; }\n" +
+            "    /** @description b */\n" +
+            "    public void beta() {}\n" +
+            "    /** @description first */\n" +
+            "    public Ctor() {}\n" +
+            "    /** @description second */\n" +
+            "    public Ctor(Integer a) {}\n" +
+            "    /** @description a */\n" +
+            "    public void Alpha() {}\n" +
+            "    /** @description a */\n" +
+            "    public Integer alpha { get; set; }\n" +
+            "    /** @description third */\n" +
+            "    public Ctor(String s, Integer a) {}\n" +
+            "    /** @description inner */\n" +
+            "    public class Inner {\n" +
+            "    }\n" +
+            "}\n";
+
+    private static ClassModel parse() {
+        return ApexDoc.parseSource(CharBuffer.wrap(SOURCE), ScopeMatcher.parse("global;public"));
+    }
+
+    @Test
+    public void constructorsComeFirstInDeclarationOrder() {
+        List<String> names = new ArrayList<String>();
+        for (MethodModel method : parse().getMethodsSorted())
+            names.add(method.getNameLine());
+        assertEquals(5, names.size());
+        assertEquals("public Ctor()", names.get(0));
+        assertEquals("public Ctor(Integer a)", names.get(1));
+        assertEquals("public Ctor(String s, Integer a)", names.get(2));
+        assertEquals("public void Alpha()", names.get(3));
+        assertEquals("public void beta()", names.get(4));
+    }
+
+    @Test
+    public void listsCantBeModified() {
+        ClassModel cModel = parse();
+        assertUnmodifiable(cModel.getMethods());
+        assertUnmodifiable(cModel.getMethodsSorted());
+        assertUnmodifiable(cModel.getProperties());
+        assertUnmodifiable(cModel.getPropertiesSorted());
+        assertUnmodifiable(cModel.getChildClasses());
+        assertUnmodifiable(cModel.getChildClassesSorted());
+    }
+
+    @Test
+    public void sortedViewsFollowChanges() {
+        ClassModel cModel = parse();
+        assertEquals(2, cModel.getPropertiesSorted().size());
+        PropertyModel prop = new PropertyModel();
+        prop.setNameLine("public Integer gamma { get; set; }", 1);
+        cModel.addProperty(prop);
+        assertEquals(3, cModel.getPropertiesSorted().size());
+        assertEquals("gamma", cModel.getPropertiesSorted().get(2).getPropertyName());
+    }
+
+    private static void assertUnmodifiable(List<?> list) {
+        try {
+            list.clear();
+            fail("the list could be modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
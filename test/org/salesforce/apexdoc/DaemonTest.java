@@ -0,0 +1,148 @@
+package org.salesforce.apexdoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*************************************************************************
+ * @description runs a daemon in this process, and sends it runs from clients
+ *              elsewhere: a client process in another working folder, whose
+ *              relative paths must resolve against its own folder, and
+ *              clients that don't know the daemon's token.
+ */
+public class DaemonTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File home;
+    private ApexDocEngine engine;
+    private ApexDocDaemon daemon;
+    private Thread serving;
+
+    @Before
+    public void startDaemon() throws Exception {
+        home = temp.newFolder("home");
+        engine = new ApexDocEngine(1, 1);
+        daemon = new ApexDocDaemon(0, engine, home);
+        serving = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    daemon.serve();
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        serving.start();
+    }
+
+    @After
+    public void stopDaemon() throws Exception {
+        daemon.close();
+        serving.join(10000);
+        engine.close();
+        assertFalse("the token file is removed", ApexDocDaemon.tokenFile(home, daemon.getPort()).exists());
+    }
+
+    @Test
+    public void clientPathsResolveAgainstClientFolder() throws Exception {
+        File work = temp.newFolder("work");
+        File source = new File(work, "src/classes");
+        source.mkdirs();
+        File sample = new File(DaemonTest.class.getResource("/sample").toURI());
+        for (File file : sample.listFiles())
+            Files.copy(file.toPath(), new File(source, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        // the client runs in the work folder, and finds the token in its home folder
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        ProcessBuilder pb = new ProcessBuilder(java, "-Duser.home=" + home.getPath(), "-cp",
+                System.getProperty("java.class.path"), ApexDoc.class.getName(), "-client",
+                Integer.toString(daemon.getPort()), "-s", "src/classes", "-t", "docs", "-h", "src/classes/home.htm",
+                "-stats", "stats.csv");
+        pb.directory(work);
+        pb.redirectErrorStream(true);
+        Process client = pb.start();
+        String output = new String(readAll(client), StandardCharsets.UTF_8);
+        assertEquals(output, 0, client.waitFor());
+
+        assertTrue(output, output.contains(ApexDocDaemon.STATUS_DONE + ", 6 classes"));
+        File docs = new File(work, "docs/" + Constants.ROOT_DIRECTORY);
+        assertTrue(new File(docs, "Utils.html").isFile());
+        assertTrue(new String(Files.readAllBytes(new File(docs, "index.html").toPath()), StandardCharsets.UTF_8)
+                .contains("Sample project"));
+        assertTrue(new File(work, "stats.csv").isFile());
+    }
+
+    @Test
+    public void clientWithoutTokenIsRefused() throws Exception {
+        File target = new File(temp.getRoot(), "refused");
+        List<String> lines = send(Arrays.asList("-s", temp.getRoot().getPath(), "-t", target.getPath()));
+        assertTrue(lines.toString(), lines.get(lines.size() - 1).startsWith(ApexDocDaemon.STATUS_FAILED));
+        assertFalse(target.exists());
+
+        lines = send(Arrays.asList("-token", "0123", "-s", temp.getRoot().getPath(), "-t", target.getPath()));
+        assertTrue(lines.toString(), lines.get(lines.size() - 1).startsWith(ApexDocDaemon.STATUS_FAILED));
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void tokenFileIsPrivate() throws Exception {
+        File tokenFile = ApexDocDaemon.tokenFile(home, daemon.getPort());
+        assertTrue(tokenFile.isFile());
+        if (Files.getFileStore(tokenFile.toPath()).supportsFileAttributeView("posix"))
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.toPath())));
+    }
+
+    // sends a request as is, and returns the lines sent back
+    private List<String> send(List<String> args) throws Exception {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), daemon.getPort());
+        try {
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            for (String arg : args)
+                out.write(arg + "\n");
+            out.write("\n");
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            ArrayList<String> lines = new ArrayList<String>();
+            String line;
+            while ((line = in.readLine()) != null)
+                lines.add(line);
+            return lines;
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static byte[] readAll(Process process) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int cb;
+        while ((cb = process.getInputStream().read(buf)) != -1)
+            bytes.write(buf, 0, cb);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,130 @@
+package org.salesforce.apexdoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/*************************************************************************
+ * @description the compact storage of a MethodModel and the ApexModel fields
+ *              it inherits: empty values are kept as null and read back as "",
+ *              repeated values share one copy, and the params and exceptions
+ *              are read-only lists whatever state they are in. The pages
+ *              rendered from such models are compared with goldens made before
+ *              the compact storage, in RendererGoldenTest.
+ */
+public class MethodModelTest {
+
+    @Test
+    public void emptyValuesReadBackEmpty() {
+        MethodModel method = new MethodModel();
+        assertFields(method, "");
+
+        method.setDescription("");
+        method.setAuthor("");
+        method.setDate(null);
+        method.setReturns("");
+        method.setScope("");
+        method.setExample("");
+        method.setDeprecated(null);
+        method.setReturnType("");
+        assertFields(method, "");
+
+        method.setDescription("x");
+        method.setAuthor("x");
+        method.setDate("x");
+        method.setReturns("x");
+        method.setScope("x");
+        method.setExample("x");
+        method.setDeprecated("x");
+        method.setReturnType("x");
+        assertFields(method, "x");
+
+        // clearing a value once it has been set reads back as never set
+        method.setDescription("");
+        method.setAuthor("");
+        method.setDate("");
+        method.setReturns("");
+        method.setScope("");
+        method.setExample("");
+        method.setDeprecated("");
+        method.setReturnType("");
+        assertFields(method, "");
+    }
+
+    @Test
+    public void repeatedValuesAreShared() {
+        MethodModel method1 = new MethodModel();
+        MethodModel method2 = new MethodModel();
+        method1.setScope(new String("public"));
+        method2.setScope(new String("public"));
+        method1.setAuthor(new String("Ann"));
+        method2.setAuthor(new String("Ann"));
+        method1.setDate(new String("2024-01-01"));
+        method2.setDate(new String("2024-01-01"));
+        method1.setReturnType(new String("String"));
+        method2.setReturnType(new String("String"));
+        assertSame(method1.getScope(), method2.getScope());
+        assertSame(method1.getAuthor(), method2.getAuthor());
+        assertSame(method1.getDate(), method2.getDate());
+        assertSame(method1.getReturnType(), method2.getReturnType());
+    }
+
+    @Test
+    public void listsCantBeModified() {
+        MethodModel method = new MethodModel();
+        assertUnmodifiable(method.getParams());
+        assertUnmodifiable(method.getExceptionList());
+
+        method.addParam("a the first");
+        method.addException("DmlException on failure");
+        assertUnmodifiable(method.getParams());
+        assertUnmodifiable(method.getExceptionList());
+        assertEquals(Arrays.asList("a the first"), method.getParams());
+        assertEquals(Arrays.asList("DmlException on failure"), method.getExceptionList());
+    }
+
+    @Test
+    public void setParamsCopies() {
+        MethodModel method = new MethodModel();
+        List<String> params = new ArrayList<String>(Arrays.asList("a the first"));
+        method.setParams(params);
+        params.add("b the second");
+        assertEquals(Arrays.asList("a the first"), method.getParams());
+        assertUnmodifiable(method.getParams());
+
+        method.addParam("b the second");
+        assertEquals(Arrays.asList("a the first", "b the second"), method.getParams());
+        assertEquals("the caller's list is left alone", 2, params.size());
+
+        method.setParams(new ArrayList<String>());
+        assertEquals(0, method.getParams().size());
+        method.addParam("c the third");
+        assertEquals(Arrays.asList("c the third"), method.getParams());
+    }
+
+    private static void assertFields(MethodModel method, String expected) {
+        assertEquals(expected, method.getDescription());
+        assertEquals(expected, method.getAuthor());
+        assertEquals(expected, method.getDate());
+        assertEquals(expected, method.getReturns());
+        assertEquals(expected, method.getScope());
+        assertEquals(expected, method.getExample());
+        assertEquals(expected, method.getDeprecated());
+        assertEquals(expected, method.getReturnType());
+    }
+
+    private static void assertUnmodifiable(List<String> list) {
+        try {
+            list.add("z");
+            fail("the list could be modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
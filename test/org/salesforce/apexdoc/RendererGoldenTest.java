@@ -0,0 +1,143 @@
+package org.salesforce.apexdoc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*************************************************************************
+ * @description renders the sample classes under test/resources/sample and
+ *              compares every page with the golden copy under
+ *              test/resources/golden, byte for byte. The goldens were made
+ *              by the renderer that built each page by String concatenation,
+ *              so the StringBuilder renderer, the parallel render and write
+ *              paths, and the streamed writes must all produce the same
+ *              pages it did. Run the sample the same way with that renderer
+ *              to make new goldens after a deliberate change to the output.
+ */
+public class RendererGoldenTest {
+
+    private static final String SCOPES = "global;public;private;webService;testMethod";
+    private static final String HOSTED_URL = "https://example.com/src/";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void htmlMatchesGolden() throws Exception {
+        assertMatchesGolden("html");
+    }
+
+    @Test
+    public void htmlInParallelMatchesGolden() throws Exception {
+        assertMatchesGolden("html", "-threads", "4", "-writers", "3");
+    }
+
+    @Test
+    public void htmlStreamedMatchesGolden() throws Exception {
+        assertMatchesGolden("html", "-threads", "2", "-stream", "2");
+    }
+
+    @Test
+    public void htmlFromCacheMatchesGolden() throws Exception {
+        // the second run renders models read back from the cache the first one saved
+        assertMatchesGolden("html", 2, "-cache");
+    }
+
+    @Test
+    public void markdownMatchesGolden() throws Exception {
+        assertMatchesGolden("markdown", "-md");
+    }
+
+    @Test
+    public void markdownInParallelMatchesGolden() throws Exception {
+        assertMatchesGolden("markdown", "-md", "-threads", "4", "-writers", "3");
+    }
+
+    @Test
+    public void sharedNavMatchesGolden() throws Exception {
+        assertMatchesGolden("sharednav", "-sharednav");
+    }
+
+    @Test
+    public void sharedNavStreamedMatchesGolden() throws Exception {
+        assertMatchesGolden("sharednav", "-sharednav", "-threads", "2", "-stream", "2");
+    }
+
+    /*************************************************************************
+     * @description renders the sample with the given parameters, and checks
+     *              the pages against test/resources/golden/{mode}.
+     * @param mode
+     *            - the folder of goldens
+     * @param extraArgs
+     *            - the parameters that select the mode and threading
+     */
+    private void assertMatchesGolden(String mode, String... extraArgs) throws IOException, URISyntaxException {
+        assertMatchesGolden(mode, 1, extraArgs);
+    }
+
+    /*************************************************************************
+     * @description renders the sample with the given parameters a number of
+     *              times into the same folder, and checks the pages of the last
+     *              run against test/resources/golden/{mode}.
+     * @param mode
+     *            - the folder of goldens
+     * @param runs
+     *            - how many times to render
+     * @param extraArgs
+     *            - the parameters that select the mode and threading
+     */
+    private void assertMatchesGolden(String mode, int runs, String... extraArgs) throws IOException,
+            URISyntaxException {
+        File sample = resource("/sample");
+        File golden = resource("/golden/" + mode);
+        File target = temp.newFolder(mode);
+
+        List<String> args = new ArrayList<String>(Arrays.asList("-s", sample.getPath(), "-t", target.getPath(),
+                "-p", SCOPES, "-h", new File(sample, "home.htm").getPath(), "-a",
+                new File(sample, "banner.htm").getPath(), "-g", HOSTED_URL));
+        args.addAll(Arrays.asList(extraArgs));
+        ApexDocConfig config = ApexDocConfig.fromArgs(args.toArray(new String[args.size()]));
+        for (int run = 0; run < runs; run++) {
+            ApexDocEngine engine = new ApexDocEngine(config);
+            try {
+                engine.generate(config, null);
+            } finally {
+                engine.close();
+            }
+        }
+
+        File output = new File(target, "ApexDocumentation");
+        List<String> expected = sortedNames(golden);
+        expected.addAll(Arrays.asList(FileManager.ASSETS));
+        Collections.sort(expected);
+        assertEquals("files written in " + mode, expected, sortedNames(output));
+
+        for (String name : sortedNames(golden)) {
+            byte[] goldenBytes = Files.readAllBytes(new File(golden, name).toPath());
+            byte[] pageBytes = Files.readAllBytes(new File(output, name).toPath());
+            assertArrayEquals(mode + "/" + name, goldenBytes, pageBytes);
+        }
+    }
+
+    private static File resource(String name) throws URISyntaxException {
+        return new File(RendererGoldenTest.class.getResource(name).toURI());
+    }
+
+    private static List<String> sortedNames(File folder) {
+        List<String> names = new ArrayList<String>(Arrays.asList(folder.list()));
+        Collections.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,76 @@
+package org.salesforce.apexdoc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/*************************************************************************
+ * @description runs a round of -watch on a copy of the sample classes, with
+ *              the documentation written into the source folder itself, as
+ *              with -s . and no -t. The pages and manifest the round
+ *              writes there must not start another round.
+ */
+public class WatchTest {
+
+    // long enough for the watch service to report a change, on platforms that poll for them
+    private static final long CHANGE_SECONDS = 15;
+    // how long nothing may be reported after a round
+    private static final long QUIET_SECONDS = 2;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void roundWithoutEditsDoesNotRegenerate() throws Exception {
+        assertOneRound(false);
+    }
+
+    @Test
+    public void recursiveRoundWithoutEditsDoesNotRegenerate() throws Exception {
+        assertOneRound(true);
+    }
+
+    private void assertOneRound(boolean recursive) throws Exception {
+        File source = temp.newFolder("src");
+        File sample = new File(WatchTest.class.getResource("/sample").toURI());
+        for (File file : sample.listFiles())
+            Files.copy(file.toPath(), new File(source, file.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        ApexDocConfig config = new ApexDocConfig.Builder().setSourceDirectory(source.getPath())
+                .setTargetDirectory(source.getPath()).setRecursive(recursive).setIncremental(true).setUseCache(true)
+                .build();
+        ApexDocEngine engine = new ApexDocEngine(config);
+        try {
+            LinkedHashMap<File, ClassModel> mapFileToModel = engine.generate(config, null);
+            SourceScanner scanner = new SourceScanner(source.getPath(), recursive, Collections.<String>emptyList(),
+                    Collections.<String>emptyList());
+            SourceWatcher watcher = new SourceWatcher(scanner, recursive, config.getTargetDirectory());
+
+            File utils = new File(source, "Utils.cls");
+            Files.write(utils.toPath(), "\n".getBytes("UTF-8"), StandardOpenOption.APPEND);
+            LinkedHashSet<File> changed = watcher.pollChanges(CHANGE_SECONDS, TimeUnit.SECONDS);
+            assertEquals(Collections.singleton(utils.getAbsoluteFile()), changed);
+
+            // the round writes pages and the manifest into the watched folder
+            engine.regenerate(config, scanner, changed, mapFileToModel);
+            assertTrue(new File(source, OutputManifest.FILE_NAME).isFile());
+
+            changed = watcher.pollChanges(QUIET_SECONDS, TimeUnit.SECONDS);
+            assertTrue("nothing was edited, but " + changed + " changed", changed != null && changed.isEmpty());
+        } finally {
+            engine.close();
+        }
+    }
+}